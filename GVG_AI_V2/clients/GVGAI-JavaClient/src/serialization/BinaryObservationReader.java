@@ -0,0 +1,304 @@
+package serialization;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Decodes the state observations sent by the server with the binary protocol.
+ *
+ * This class mirrors tracks.singleLearning.utils.BinaryObservationWriter in the server:
+ * the fields are read in a fixed order, as big endian primitives (enums as their ordinal,
+ * -1 for null), and the observation arrays are delta encoded against the last ones received.
+ * Each observation starts with a mask of the fields that changed from the observation in the
+ * same position of the previous array, followed by the new values of those fields only.
+ */
+public class BinaryObservationReader {
+
+    /**
+     * Fields of an observation that are sent when they change.
+     */
+    private static final int CATEGORY = 1;
+    private static final int ITYPE = 2;
+    private static final int ID = 4;
+    private static final int POSITION = 8;
+    private static final int REFERENCE = 16;
+    private static final int SQDIST = 32;
+
+    /**
+     * References: none, the same as the last one read in the array, or new.
+     */
+    private static final int REF_NONE = 0;
+    private static final int REF_LAST = 1;
+
+    /**
+     * Number of observation arrays, in the order they are sent.
+     */
+    private static final int NUM_ARRAYS = 7;
+
+    /**
+     * Names of the image formats of the server, by ordinal.
+     */
+    private static final String[] IMAGE_FORMATS = {"PNG", "RGB", "GRAY"};
+
+    /**
+     * Last arrays received, and the arrays being read.
+     */
+    private ObservationTable[] previous;
+    private ObservationTable[] current;
+
+    /**
+     * Creates a reader with no previous observations.
+     */
+    public BinaryObservationReader() {
+        previous = new ObservationTable[NUM_ARRAYS];
+        current = new ObservationTable[NUM_ARRAYS];
+        for (int i = 0; i < NUM_ARRAYS; i++) {
+            previous[i] = new ObservationTable();
+            current[i] = new ObservationTable();
+        }
+    }
+
+    /**
+     * Decodes an observation.
+     * @param in encoded observation.
+     * @return a new observation, that does not share any object with the previous ones.
+     */
+    public SerializableStateObservation read(ByteBuffer in) {
+        SerializableStateObservation sso = new SerializableStateObservation();
+
+        sso.phase = SerializableStateObservation.Phase.values()[in.get()];
+        sso.isValidation = in.get() != 0;
+        sso.gameScore = in.getFloat();
+        sso.gameTick = in.getInt();
+        byte winner = in.get();
+        sso.gameWinner = winner == -1 ? null : Types.WINNER.values()[winner];
+        sso.isGameOver = in.get() != 0;
+        int numActions = in.getInt();
+        if (numActions != -1) {
+            sso.availableActions = new ArrayList<>(numActions);
+            for (int i = 0; i < numActions; i++)
+                sso.availableActions.add(Types.ACTIONS.values()[in.get()]);
+        }
+
+        // Image
+        byte format = in.get();
+        sso.imageFormat = format == -1 ? null : IMAGE_FORMATS[format];
+        sso.imageWidth = in.getInt();
+        sso.imageHeight = in.getInt();
+        int imageLength = in.getInt();
+        if (imageLength != -1) {
+            sso.imageArray = new byte[imageLength];
+            in.get(sso.imageArray);
+        }
+
+        // Avatar and world
+        sso.worldDimension = readVector(in);
+        sso.blockSize = in.getInt();
+        sso.noOfPlayers = in.getInt();
+        sso.avatarSpeed = in.getFloat();
+        sso.avatarOrientation = readVector(in);
+        sso.avatarPosition = readVector(in);
+        byte action = in.get();
+        sso.avatarLastAction = action == -1 ? null : Types.ACTIONS.values()[action];
+        sso.avatarType = in.getInt();
+        sso.avatarHealthPoints = in.getInt();
+        sso.avatarMaxHealthPoints = in.getInt();
+        sso.avatarLimitHealthPoints = in.getInt();
+        sso.isAvatarAlive = in.get() != 0;
+        int numResources = in.getInt();
+        if (numResources != -1) {
+            sso.avatarResources = new HashMap<>();
+            for (int i = 0; i < numResources; i++)
+                sso.avatarResources.put(in.getInt(), in.getInt());
+        }
+
+        // Observation arrays
+        sso.observationGrid = readGrid(in, 0);
+        sso.NPCPositions = readArray(in, 1);
+        sso.immovablePositions = readArray(in, 2);
+        sso.movablePositions = readArray(in, 3);
+        sso.resourcesPositions = readArray(in, 4);
+        sso.portalsPositions = readArray(in, 5);
+        sso.fromAvatarSpritesPositions = readArray(in, 6);
+        return sso;
+    }
+
+    /**
+     * Reads a vector stored as a double[2], which is null if the state data is not sent.
+     */
+    private double[] readVector(ByteBuffer in) {
+        if (in.get() == 0)
+            return null;
+        return new double[]{in.getDouble(), in.getDouble()};
+    }
+
+    /**
+     * Reads the observation grid: width, height and the cells column by column.
+     */
+    private Observation[][][] readGrid(ByteBuffer in, int index) {
+        int width = in.getInt();
+        if (width == -1)
+            return null;
+        int height = in.getInt();
+
+        ObservationTable table = readTable(in, index, width * height);
+        Observation[][][] grid = new Observation[width][height][];
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                grid[x][y] = table.getRow(x * height + y);
+        return grid;
+    }
+
+    /**
+     * Reads an array of observations: number of rows and the rows.
+     */
+    private Observation[][] readArray(ByteBuffer in, int index) {
+        int rows = in.getInt();
+        if (rows == -1)
+            return null;
+
+        ObservationTable table = readTable(in, index, rows);
+        Observation[][] array = new Observation[rows][];
+        for (int i = 0; i < rows; i++)
+            array[i] = table.getRow(i);
+        return array;
+    }
+
+    /**
+     * Reads rows into current[index], against previous[index], and makes them the previous ones.
+     */
+    private ObservationTable readTable(ByteBuffer in, int index, int rows) {
+        ObservationTable table = current[index];
+        ObservationTable last = previous[index];
+
+        table.clear();
+        for (int row = 0; row < rows; row++)
+            table.addRow(in.getInt());
+
+        boolean hasLastRef = false;
+        double lastRefX = 0, lastRefY = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < table.rowLength[row]; col++) {
+                int k = table.rowStart[row] + col;
+                int p = last.indexOf(row, col);
+                if (p != -1)
+                    table.copy(k, last, p);
+
+                int mask = in.get();
+                if ((mask & CATEGORY) != 0) table.category[k] = in.getInt();
+                if ((mask & ITYPE) != 0) table.itype[k] = in.getInt();
+                if ((mask & ID) != 0) table.obsID[k] = in.getInt();
+                if ((mask & POSITION) != 0) {
+                    table.posX[k] = in.getDouble();
+                    table.posY[k] = in.getDouble();
+                }
+                if ((mask & REFERENCE) != 0) {
+                    int ref = in.get();
+                    if (ref == REF_NONE) {
+                        table.hasRef[k] = false;
+                        table.refX[k] = 0;
+                        table.refY[k] = 0;
+                    } else {
+                        if (ref != REF_LAST) {
+                            hasLastRef = true;
+                            lastRefX = in.getDouble();
+                            lastRefY = in.getDouble();
+                        }
+                        table.hasRef[k] = hasLastRef;
+                        table.refX[k] = lastRefX;
+                        table.refY[k] = lastRefY;
+                    }
+                }
+                if ((mask & SQDIST) != 0) table.sqDist[k] = in.getDouble();
+            }
+        }
+
+        previous[index] = table;
+        current[index] = last;
+        return table;
+    }
+
+    /**
+     * Values of the observations of an array, row by row.
+     */
+    private static class ObservationTable {
+        int rows;
+        int[] rowStart = new int[16];
+        int[] rowLength = new int[16];
+
+        int size;
+        int[] category = new int[64];
+        int[] itype = new int[64];
+        int[] obsID = new int[64];
+        double[] posX = new double[64];
+        double[] posY = new double[64];
+        boolean[] hasRef = new boolean[64];
+        double[] refX = new double[64];
+        double[] refY = new double[64];
+        double[] sqDist = new double[64];
+
+        void clear() {
+            rows = 0;
+            size = 0;
+        }
+
+        void addRow(int length) {
+            if (rows == rowStart.length) {
+                rowStart = Arrays.copyOf(rowStart, 2 * rows);
+                rowLength = Arrays.copyOf(rowLength, 2 * rows);
+            }
+            rowStart[rows] = size;
+            rowLength[rows] = length;
+            rows++;
+            size += length;
+            if (size > category.length) {
+                int capacity = Math.max(size, 2 * category.length);
+                category = Arrays.copyOf(category, capacity);
+                itype = Arrays.copyOf(itype, capacity);
+                obsID = Arrays.copyOf(obsID, capacity);
+                posX = Arrays.copyOf(posX, capacity);
+                posY = Arrays.copyOf(posY, capacity);
+                hasRef = Arrays.copyOf(hasRef, capacity);
+                refX = Arrays.copyOf(refX, capacity);
+                refY = Arrays.copyOf(refY, capacity);
+                sqDist = Arrays.copyOf(sqDist, capacity);
+            }
+        }
+
+        int indexOf(int row, int col) {
+            if (row >= rows || col >= rowLength[row])
+                return -1;
+            return rowStart[row] + col;
+        }
+
+        void copy(int k, ObservationTable other, int p) {
+            category[k] = other.category[p];
+            itype[k] = other.itype[p];
+            obsID[k] = other.obsID[p];
+            posX[k] = other.posX[p];
+            posY[k] = other.posY[p];
+            hasRef[k] = other.hasRef[p];
+            refX[k] = other.refX[p];
+            refY[k] = other.refY[p];
+            sqDist[k] = other.sqDist[p];
+        }
+
+        Observation[] getRow(int row) {
+            Observation[] observations = new Observation[rowLength[row]];
+            for (int col = 0; col < observations.length; col++) {
+                int k = rowStart[row] + col;
+                Observation obs = new Observation();
+                obs.category = category[k];
+                obs.itype = itype[k];
+                obs.obsID = obsID[k];
+                obs.position = new Vector2d(posX[k], posY[k]);
+                obs.reference = hasRef[k] ? new Vector2d(refX[k], refY[k]) : null;
+                obs.sqDist = sqDist[k];
+                observations[col] = obs;
+            }
+            return observations;
+        }
+    }
+}
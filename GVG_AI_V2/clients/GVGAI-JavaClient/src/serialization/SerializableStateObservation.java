@@ -27,6 +27,14 @@ public class SerializableStateObservation {
      */
     public byte[] imageArray;
 
+    /**
+     * Encoding of imageArray: PNG, or raw pixels row by row (RGB: 3 bytes per pixel,
+     * GRAY: 1 byte per pixel). Null if the server does not send it (PNG).
+     */
+    public String imageFormat;
+    public int imageWidth;
+    public int imageHeight;
+
     /**
      * Indicates the state of the protocol
      */
@@ -1,11 +1,14 @@
 package utils;
 
+import serialization.BinaryObservationReader;
 import serialization.SerializableStateObservation;
 import serialization.Types.LEARNING_SSO_TYPE;
 import utils.com.google.gson.Gson;
 
 import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  *  -----  DO NOT MODIFY THIS CLASS -----
@@ -42,6 +45,16 @@ public class ClientComm {
      */
     public static String TOKEN_SEP = "#";
 
+    /**
+     * Option of the handshake to use the binary protocol, offered by the server in START.
+     */
+    public static String BINARY_TOKEN = "BINARY";
+
+    /**
+     * Kind of the frames of the binary protocol that hold a message instead of an observation.
+     */
+    private static final byte FRAME_TEXT = 0;
+
     /**
      * If true, all messages sent to server are also printed to the log file
      */
@@ -62,6 +75,18 @@ public class ClientComm {
      */
     private LEARNING_SSO_TYPE lastSsoType = LEARNING_SSO_TYPE.JSON;
 
+    /**
+     * True if the server offered the binary protocol, and true once it is in use.
+     * Messages are then received in frames; replies are still sent as lines.
+     */
+    private boolean binaryOffered;
+    private boolean binary;
+
+    /**
+     * Decoder of the observations of the binary protocol.
+     */
+    private BinaryObservationReader binaryReader;
+
     /**
      * Creates the client.
      */
@@ -98,11 +123,16 @@ public class ClientComm {
         // Continuously listen for messages
         while (line != null) {
 
-            // Read a line from System.in and save it as a String
-            line = io.readLine();
+            if (binary) {
+                // Read and process a frame of the binary protocol
+                processFrame();
+            } else {
+                // Read a line from System.in and save it as a String
+                line = io.readLine();
 
-            // Process the line
-            processLine(line);
+                // Process the line
+                processLine(line);
+            }
             //io.writeToFile("line: " + line);
 
             if(sso.phase == SerializableStateObservation.Phase.START)
@@ -167,6 +197,7 @@ public class ClientComm {
             // Happens only on one-time setup
             if (json.equals("START")) {
                 this.sso.phase = SerializableStateObservation.Phase.START;
+                binaryOffered = message.length > 2 && message[2].trim().equals(BINARY_TOKEN);
                 return;
             }
 
@@ -178,14 +209,7 @@ public class ClientComm {
             // Else, deserialize the json using GSon
             this.sso = gson.fromJson(json, SerializableStateObservation.class);
 
-            // If expect image
-            if (lastSsoType == LEARNING_SSO_TYPE.IMAGE || lastSsoType == LEARNING_SSO_TYPE.BOTH) {
-                if ((sso.phase != SerializableStateObservation.Phase.INIT
-                    && sso.phase != SerializableStateObservation.Phase.ABORT)) {
-                    // If an image has been received, then save its PNG equivalent
-                    sso.convertBytesToPng(sso.imageArray);
-                }
-            }
+            processImage();
             // Used for debugging
 //            io.writeToFile(sso.toString());
         } catch (Exception e){
@@ -195,6 +219,43 @@ public class ClientComm {
     }
 
 
+    /**
+     * Reads a frame of the binary protocol. Messages are processed as lines, and
+     * observations are decoded into sso.
+     * @throws IOException if the server closed the connection.
+     */
+    private void processFrame() throws IOException {
+        ByteBuffer frame = io.readFrame();
+        if (io.getFrameKind() == FRAME_TEXT) {
+            String msg = new String(frame.array(), frame.position(), frame.remaining(), StandardCharsets.UTF_8);
+            processLine(io.getFrameId() + TOKEN_SEP + msg);
+            return;
+        }
+
+        try {
+            lastMessageId = io.getFrameId();
+            this.sso = binaryReader.read(frame);
+            processImage();
+        } catch (Exception e){
+            io.logStackTrace(e);
+        }
+    }
+
+    /**
+     * Saves the image of the observation, if the agent expects one.
+     */
+    private void processImage() throws Exception {
+        if (lastSsoType == LEARNING_SSO_TYPE.IMAGE || lastSsoType == LEARNING_SSO_TYPE.BOTH) {
+            if ((sso.phase != SerializableStateObservation.Phase.INIT
+                && sso.phase != SerializableStateObservation.Phase.ABORT)) {
+                // If a PNG image has been received, then save it. Raw pixels are read from imageArray.
+                if (sso.imageFormat == null || sso.imageFormat.equals("PNG"))
+                    sso.convertBytesToPng(sso.imageArray);
+            }
+        }
+    }
+
+
     /// Specific state functions
 
     /**
@@ -219,7 +280,14 @@ public class ClientComm {
             io.writeToServer(lastMessageId, "START_FAILED", LOG);
         }else {
             //io.writeToFile("start done");
-            io.writeToServer(lastMessageId, "START_DONE" + TOKEN_SEP + player.lastSsoType, LOG);
+            if (binaryOffered && CompetitionParameters.BINARY_PROTOCOL) {
+                // Accept the binary protocol: the next messages of the server are frames.
+                io.writeToServer(lastMessageId, "START_DONE" + TOKEN_SEP + player.lastSsoType + TOKEN_SEP + BINARY_TOKEN, LOG);
+                binaryReader = new BinaryObservationReader();
+                binary = true;
+            } else {
+                io.writeToServer(lastMessageId, "START_DONE" + TOKEN_SEP + player.lastSsoType, LOG);
+            }
         }
 
     }
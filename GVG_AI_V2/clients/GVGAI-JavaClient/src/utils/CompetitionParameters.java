@@ -59,5 +59,11 @@ public class CompetitionParameters
      */
     public static final int SOCKET_PORT = 8080;//3000;
 
+    /**
+     * Accept the binary protocol if the server offers it? Observations are then
+     * received in binary frames instead of JSON lines.
+     */
+    public static final boolean BINARY_PROTOCOL = true;
+
     public static String SCREENSHOT_FILENAME = "gameStateByBytes.png";
 }
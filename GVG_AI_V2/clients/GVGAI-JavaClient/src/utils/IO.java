@@ -1,8 +1,12 @@
 package utils;
 
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Created by dperez on 01/06/2017.
@@ -19,6 +23,24 @@ public abstract class IO extends Thread{
      */
     private PrintWriter fileOutput;
 
+    /**
+     * Reader of the messages from the server, set by the subclasses. Lines and frames of the
+     * binary protocol are both read from it, so no bytes are left behind in another buffer.
+     */
+    protected DataInputStream serverInput;
+
+    /**
+     * Message ID, kind and payload of the last frame read.
+     */
+    private long frameId;
+    private byte frameKind;
+    private byte[] frameData = new byte[4096];
+
+    /**
+     * Bytes of the line being read.
+     */
+    private byte[] lineData = new byte[4096];
+
 
     /**
      * Default constructor.
@@ -58,7 +80,58 @@ public abstract class IO extends Thread{
 
     public abstract void writeToServer(long messageId, String line, boolean log);
 
-    public abstract String readLine() throws IOException;
+    /**
+     * Reads a line sent by the server, in UTF-8.
+     * @return the line, without the line separator, or null if the server closed the connection.
+     * @throws IOException if the line could not be read.
+     */
+    public String readLine() throws IOException
+    {
+        int length = 0;
+        int b;
+        while ((b = serverInput.read()) != -1 && b != '\n') {
+            if (length == lineData.length)
+                lineData = Arrays.copyOf(lineData, 2 * length);
+            lineData[length++] = (byte) b;
+        }
+        if (b == -1 && length == 0)
+            return null;
+        if (length > 0 && lineData[length - 1] == '\r')
+            length--;
+        return new String(lineData, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a frame of the binary protocol: its length, message ID, kind and payload.
+     * @return the payload. It is overwritten by the next frame.
+     * @throws IOException if the server closed the connection.
+     */
+    public ByteBuffer readFrame() throws IOException
+    {
+        int length = serverInput.readInt();
+        frameId = serverInput.readInt();
+        frameKind = serverInput.readByte();
+        if (length > frameData.length)
+            frameData = new byte[Math.max(length, 2 * frameData.length)];
+        serverInput.readFully(frameData, 0, length);
+        return ByteBuffer.wrap(frameData, 0, length);
+    }
+
+    /**
+     * @return message ID of the last frame read.
+     */
+    public long getFrameId()
+    {
+        return frameId;
+    }
+
+    /**
+     * @return kind of the last frame read.
+     */
+    public byte getFrameKind()
+    {
+        return frameKind;
+    }
 
     public void logStackTrace(Exception e) {
         e.printStackTrace(this.fileOutput);
@@ -7,11 +7,6 @@ import java.io.*;
  */
 public class IOPipe extends IO {
 
-    /**
-     * Reader of the player. Will read the game state from the client.
-     */
-    public static BufferedReader input;
-
     /**
      * Writer of the player. Used to pass the action of the player to the server.
      */
@@ -24,7 +19,7 @@ public class IOPipe extends IO {
     public void initBuffers() {
 
         try {
-            input = new BufferedReader(new InputStreamReader(System.in));
+            serverInput = new DataInputStream(new BufferedInputStream(System.in));
             output = new BufferedWriter(new OutputStreamWriter(System.out));
 
         } catch (Exception e) {
@@ -48,11 +43,6 @@ public class IOPipe extends IO {
         if(log) this.writeToFile(msg);
     }
 
-    @Override
-    public String readLine() throws IOException{
-        return input.readLine();
-    }
-
     /**
      * Writes a line to the server, adding a line separator at the end.
      * @param line to write
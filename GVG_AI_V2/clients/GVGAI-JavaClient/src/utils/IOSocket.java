@@ -3,7 +3,6 @@ package utils;
 import java.io.*;
 import java.net.ConnectException;
 import java.net.Socket;
-import java.util.Scanner;
 
 /**
  * Created by dperez on 23/05/2017.
@@ -12,7 +11,6 @@ public class IOSocket extends IO {
 
 
     private Socket socket;
-    private Scanner in;
     private PrintStream out;
 
     private String hostname = "localhost";
@@ -44,8 +42,10 @@ public class IOSocket extends IO {
                 }
             }
 
+            //Messages are small and answered at once: send them without waiting for the ACK of the previous one.
+            socket.setTcpNoDelay(true);
             out = new PrintStream(socket.getOutputStream());
-            in = new Scanner(socket.getInputStream());
+            serverInput = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
 
         } catch (Exception e) {
             System.out.println("Exception creating the client process: " + e);
@@ -69,11 +69,6 @@ public class IOSocket extends IO {
         if(log) this.writeToFile(msg);
     }
 
-    @Override
-    public String readLine() throws IOException{
-        return in.nextLine();
-    }
-
     /**
      * Writes a line to the server, adding a line separator at the end.
      * @param line to write
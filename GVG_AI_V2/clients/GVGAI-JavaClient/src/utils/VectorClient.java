@@ -0,0 +1,187 @@
+package utils;
+
+import serialization.BinaryObservationReader;
+import serialization.SerializableStateObservation;
+import serialization.Types;
+import utils.com.google.gson.Gson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Client of the vectorised environment server (tracks.singleLearning.utils.VectorServer),
+ * for learners that step K copies of a game at once. After each call to reset() or step(),
+ * the public arrays hold the result for each environment.
+ *
+ * When an episode ends, its environment is reset by the server: done is true if its game
+ * ended, with winner the result of the game, and truncated is true if it was cut off at the
+ * maximum number of steps, with no winner. The observation is then the first one of the next
+ * episode, and the final observation the last one of the episode that ended (null otherwise).
+ */
+public class VectorClient {
+
+    /**
+     * Kinds of the frames of the binary protocol.
+     */
+    private static final byte FRAME_TEXT = 0;
+    private static final byte FRAME_VECTOR = 2;
+
+    /**
+     * Result of the last request, for each environment.
+     */
+    public SerializableStateObservation[] observations;
+    public SerializableStateObservation[] finalObservations;
+    public float[] rewards;
+    public boolean[] dones;
+    public boolean[] truncateds;
+    public Types.WINNER[] winners;
+
+    private IO io;
+    private long lastMessageId;
+    private boolean binary;
+    private BinaryObservationReader[] readers;
+    private BinaryObservationReader[] finalReaders;
+
+    /**
+     * Creates the client, for a server at CompetitionParameters.SOCKET_PORT.
+     */
+    public VectorClient()
+    {
+        this(CompetitionParameters.SOCKET_PORT);
+    }
+
+    /**
+     * Creates the client.
+     * @param port port of the server.
+     */
+    public VectorClient(int port)
+    {
+        io = new IOSocket(port);
+    }
+
+    /**
+     * Connects to the server, and accepts the binary protocol if it is offered.
+     */
+    public void connect() throws IOException
+    {
+        io.initBuffers();
+        String[] start = io.readLine().split(ClientComm.TOKEN_SEP);
+        lastMessageId = Long.parseLong(start[0]);
+        binary = CompetitionParameters.BINARY_PROTOCOL && start.length > 2
+            && start[2].trim().equals(ClientComm.BINARY_TOKEN);
+
+        String reply = "START_DONE" + ClientComm.TOKEN_SEP + Types.LEARNING_SSO_TYPE.JSON;
+        if (binary)
+            reply += ClientComm.TOKEN_SEP + ClientComm.BINARY_TOKEN;
+        io.writeToServer(lastMessageId, reply, false);
+    }
+
+    /**
+     * Starts a new episode in all the environments.
+     */
+    public void reset() throws IOException
+    {
+        io.writeToServer(lastMessageId, "RESET", false);
+        receive();
+    }
+
+    /**
+     * Advances all the environments one step.
+     * @param actions action of each environment.
+     */
+    public void step(Types.ACTIONS[] actions) throws IOException
+    {
+        StringBuilder msg = new StringBuilder();
+        for (int i = 0; i < actions.length; i++) {
+            if (i > 0)
+                msg.append(',');
+            msg.append(actions[i]);
+        }
+        io.writeToServer(lastMessageId, msg.toString(), false);
+        receive();
+    }
+
+    /**
+     * Closes the server.
+     */
+    public void close()
+    {
+        io.writeToServer(lastMessageId, "FINISH", false);
+    }
+
+    private void receive() throws IOException
+    {
+        if (!binary) {
+            String[] message = io.readLine().split(ClientComm.TOKEN_SEP);
+            lastMessageId = Long.parseLong(message[0]);
+            Step step = new Gson().fromJson(message[1], Step.class);
+            observations = step.observations;
+            finalObservations = step.finalObservations;
+            rewards = step.rewards;
+            dones = step.dones;
+            truncateds = step.truncateds;
+            winners = step.winners;
+            return;
+        }
+
+        ByteBuffer frame = io.readFrame();
+        lastMessageId = io.getFrameId();
+        if (io.getFrameKind() != FRAME_VECTOR) {
+            String msg = io.getFrameKind() == FRAME_TEXT ?
+                new String(frame.array(), frame.position(), frame.remaining(), StandardCharsets.UTF_8) : "";
+            throw new IOException("VectorClient: unexpected message from the server: " + msg);
+        }
+
+        int numEnvs = frame.getInt();
+        if (readers == null) {
+            readers = new BinaryObservationReader[numEnvs];
+            finalReaders = new BinaryObservationReader[numEnvs];
+            for (int i = 0; i < numEnvs; i++) {
+                readers[i] = new BinaryObservationReader();
+                finalReaders[i] = new BinaryObservationReader();
+            }
+            observations = new SerializableStateObservation[numEnvs];
+            finalObservations = new SerializableStateObservation[numEnvs];
+            rewards = new float[numEnvs];
+            dones = new boolean[numEnvs];
+            truncateds = new boolean[numEnvs];
+            winners = new Types.WINNER[numEnvs];
+        }
+
+        for (int i = 0; i < numEnvs; i++) {
+            rewards[i] = frame.getFloat();
+            dones[i] = frame.get() != 0;
+            truncateds[i] = frame.get() != 0;
+            byte winner = frame.get();
+            winners[i] = winner == -1 ? null : Types.WINNER.values()[winner];
+            observations[i] = readObservation(frame, readers[i]);
+            finalObservations[i] = dones[i] || truncateds[i] ? readObservation(frame, finalReaders[i]) : null;
+        }
+    }
+
+    /**
+     * Reads the length and bytes of an observation of the frame.
+     */
+    private static SerializableStateObservation readObservation(ByteBuffer frame, BinaryObservationReader reader)
+    {
+        int length = frame.getInt();
+        ByteBuffer observation = frame.slice();
+        observation.limit(length);
+        frame.position(frame.position() + length);
+        return reader.read(observation);
+    }
+
+    /**
+     * Reply of the server, in JSON.
+     */
+    private static class Step
+    {
+        SerializableStateObservation[] observations;
+        SerializableStateObservation[] finalObservations;
+        float[] rewards;
+        boolean[] dones;
+        boolean[] truncateds;
+        Types.WINNER[] winners;
+    }
+}
@@ -205,7 +205,7 @@ class ClientComm:
             if self.sso.phase == "ACT":
                 if self.lastSsoType == LEARNING_SSO_TYPE.IMAGE or self.lastSsoType == "IMAGE" \
                         or self.lastSsoType == LEARNING_SSO_TYPE.BOTH or self.lastSsoType == "BOTH":
-                    if self.sso.imageArray:
+                    if self.sso.imageArray and self.sso.imageFormat in (None, "PNG"):
                         self.sso.convertBytesToPng(self.sso.imageArray)
 
         except Exception as e:
@@ -14,6 +14,9 @@ class SerializableStateObservation:
     """
     def __init__(self):
         self.imageArray = bytearray([])
+        self.imageFormat = None  # PNG, RGB or GRAY (raw pixels, row by row)
+        self.imageWidth = 0
+        self.imageHeight = 0
         
         self.phase = Phase()
         self.isValidation = True
@@ -1,5 +1,7 @@
 package core.competition;
 
+import ontology.Types;
+
 /**
  * Created with IntelliJ IDEA.
  * User: Diego
@@ -93,6 +95,14 @@ public class CompetitionParameters
      */
     public static final int OPTIMIZATION_EVALUATION = 5;
     
+    /**
+     * Turbo mode for headless games (Game.runGame), for offline training: controllers
+     * are not timed, no screenshots are sent and the number of ticks per second is
+     * kept (Game.getTicksPerSecond). The logger is off while ArcadeMachine.runGames
+     * and TournamentMachine play their games.
+     */
+    public static boolean TURBO = false;
+
     /**
      * Max number of warning then the system consider the game unplayable.
      */
@@ -109,6 +119,24 @@ public class CompetitionParameters
      */
     public static String SCREENSHOT_FILENAME = "gameStateByBytes.png";
 
+    /**
+     * Encoding of the screenshots sent to learning clients.
+     */
+    public static Types.LEARNING_IMAGE_FORMAT LEARNING_IMAGE_FORMAT = Types.LEARNING_IMAGE_FORMAT.PNG;
+
+    /**
+     * Side of the blocks of pixels averaged into one in the screenshots sent to
+     * learning clients (1 sends them at full size).
+     */
+    public static int LEARNING_IMAGE_DOWNSAMPLE = 1;
+
+    /**
+     * Offer the binary protocol to learning clients at the start of the communication.
+     * Observations are then sent in length-prefixed binary frames instead of JSON lines,
+     * if the client accepts it. Clients that do not know it keep using JSON.
+     */
+    public static boolean LEARNING_BINARY_PROTOCOL = true;
+
     /**
      * Delay for human play.
      */
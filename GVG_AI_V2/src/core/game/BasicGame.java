@@ -200,7 +200,7 @@ public class BasicGame extends Game {
 		}
 
 		// Nobody has been killed... yet!
-		kill_list = new ArrayList<VGDLSprite>();
+		kill_list = new KillList();
 
 		// Generate the initial state observation.
 		this.createAvatars(-1);
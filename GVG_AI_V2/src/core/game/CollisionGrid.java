@@ -0,0 +1,251 @@
+package core.game;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import core.vgdl.VGDLSprite;
+
+/**
+ * Uniform grid broad phase for the pairwise collisions of Game.eventHandling.
+ * The grid indexes a list of sprites (the second sprite type of an effect pair)
+ * by cells of block_size pixels, so a collision query only visits the sprites
+ * found in the cells covered by the querying sprite.
+ *
+ * Effects can move sprites by changing their rectangles directly, so the rectangle
+ * of every indexed sprite is kept when it is indexed, and refresh() indexes the
+ * list again if any of them changed. Candidates are returned in list order, so the
+ * order in which effects are executed does not change.
+ *
+ * Sprites outside of the screen are clamped to the border cells, which keeps the
+ * query conservative. Sprites covering many cells are kept apart and returned by
+ * every query.
+ */
+public class CollisionGrid
+{
+    /**
+     * Sprites covering more cells than this are not put in the cells.
+     */
+    private static final int MAX_CELLS_PER_SPRITE = 16;
+
+    private int cellSize;
+    private int numCols;
+    private int numRows;
+
+    //Linked list of entries per cell. A cell is empty if its stamp is old.
+    private int[] cellHead;
+    private int[] cellStamp;
+    private int stamp;
+
+    //Entries: index of the sprite in the list and next entry of the cell.
+    private int[] entryItem;
+    private int[] entryNext;
+    private int numEntries;
+
+    //Indexed sprites, with their rectangles when they were indexed.
+    private ArrayList<VGDLSprite> items;
+    private int[] itemX, itemY, itemW, itemH;
+    private int[] itemMark;
+    private int markStamp;
+
+    //Sprites covering too many cells.
+    private int[] oversized;
+    private int numOversized;
+
+    //Result of the last query.
+    private int[] candidates;
+    private int numCandidates;
+
+    /**
+     * Creates a grid covering the screen.
+     * @param screenWidth width of the screen, in pixels.
+     * @param screenHeight height of the screen, in pixels.
+     * @param cellSize side of a cell, in pixels.
+     */
+    public CollisionGrid(int screenWidth, int screenHeight, int cellSize)
+    {
+        this.cellSize = Math.max(1, cellSize);
+        this.numCols = Math.max(1, (screenWidth + this.cellSize - 1) / this.cellSize);
+        this.numRows = Math.max(1, (screenHeight + this.cellSize - 1) / this.cellSize);
+
+        cellHead = new int[numCols * numRows];
+        cellStamp = new int[numCols * numRows];
+        entryItem = new int[64];
+        entryNext = new int[64];
+        itemX = new int[16];
+        itemY = new int[16];
+        itemW = new int[16];
+        itemH = new int[16];
+        itemMark = new int[16];
+        oversized = new int[16];
+        candidates = new int[16];
+    }
+
+    /**
+     * Checks if this grid was built for the given screen and cell sizes.
+     */
+    public boolean fits(int screenWidth, int screenHeight, int cellSize)
+    {
+        return this.cellSize == Math.max(1, cellSize) &&
+               numCols == Math.max(1, (screenWidth + this.cellSize - 1) / this.cellSize) &&
+               numRows == Math.max(1, (screenHeight + this.cellSize - 1) / this.cellSize);
+    }
+
+    /**
+     * Indexes a list of sprites, replacing the previous content of the grid.
+     * The list is not copied and must not change while the grid is used.
+     * @param sprites sprites to index.
+     */
+    public void build(ArrayList<VGDLSprite> sprites)
+    {
+        items = sprites;
+        int n = sprites.size();
+        if(itemX.length < n)
+        {
+            int size = Math.max(n, 2 * itemX.length);
+            itemX = new int[size];
+            itemY = new int[size];
+            itemW = new int[size];
+            itemH = new int[size];
+            itemMark = new int[size];
+        }
+        index();
+    }
+
+    /**
+     * Indexes the list again if any of its sprites changed its rectangle since it was indexed.
+     */
+    public void refresh()
+    {
+        int n = items.size();
+        for(int i = 0; i < n; ++i)
+        {
+            Rectangle r = items.get(i).rect;
+            if(r.x != itemX[i] || r.y != itemY[i] || r.width != itemW[i] || r.height != itemH[i])
+            {
+                index();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the indexed sprites that may intersect a rectangle. Results are
+     * available through getNumCandidates() and getCandidate(), in list order.
+     * @param rect rectangle to check.
+     */
+    public void query(Rectangle rect)
+    {
+        numCandidates = 0;
+        if(++markStamp == 0)
+        {
+            Arrays.fill(itemMark, 0);
+            markStamp = 1;
+        }
+
+        int c0 = col(rect.x), c1 = col(rect.x + rect.width - 1);
+        int r0 = row(rect.y), r1 = row(rect.y + rect.height - 1);
+        for(int r = r0; r <= r1; ++r)
+        {
+            for(int c = c0; c <= c1; ++c)
+            {
+                int cell = r * numCols + c;
+                if(cellStamp[cell] != stamp)
+                    continue;
+                for(int e = cellHead[cell]; e != -1; e = entryNext[e])
+                    addCandidate(entryItem[e]);
+            }
+        }
+        for(int i = 0; i < numOversized; ++i)
+            addCandidate(oversized[i]);
+
+        Arrays.sort(candidates, 0, numCandidates);
+    }
+
+    /**
+     * @return number of candidates found by the last query.
+     */
+    public int getNumCandidates()
+    {
+        return numCandidates;
+    }
+
+    /**
+     * @param i candidate number.
+     * @return sprite of the indexed list.
+     */
+    public VGDLSprite getCandidate(int i)
+    {
+        return items.get(candidates[i]);
+    }
+
+    private void index()
+    {
+        if(++stamp == 0)
+        {
+            Arrays.fill(cellStamp, 0);
+            stamp = 1;
+        }
+        numEntries = 0;
+        numOversized = 0;
+
+        int n = items.size();
+        for(int i = 0; i < n; ++i)
+        {
+            Rectangle rect = items.get(i).rect;
+            itemX[i] = rect.x;
+            itemY[i] = rect.y;
+            itemW[i] = rect.width;
+            itemH[i] = rect.height;
+
+            int c0 = col(rect.x), c1 = col(rect.x + rect.width - 1);
+            int r0 = row(rect.y), r1 = row(rect.y + rect.height - 1);
+            if((c1 - c0 + 1) * (r1 - r0 + 1) > MAX_CELLS_PER_SPRITE)
+            {
+                if(numOversized == oversized.length)
+                    oversized = Arrays.copyOf(oversized, 2 * oversized.length);
+                oversized[numOversized++] = i;
+                continue;
+            }
+
+            for(int r = r0; r <= r1; ++r)
+            {
+                for(int c = c0; c <= c1; ++c)
+                {
+                    int cell = r * numCols + c;
+                    if(numEntries == entryItem.length)
+                    {
+                        entryItem = Arrays.copyOf(entryItem, 2 * entryItem.length);
+                        entryNext = Arrays.copyOf(entryNext, 2 * entryNext.length);
+                    }
+                    entryItem[numEntries] = i;
+                    entryNext[numEntries] = cellStamp[cell] == stamp ? cellHead[cell] : -1;
+                    cellHead[cell] = numEntries++;
+                    cellStamp[cell] = stamp;
+                }
+            }
+        }
+    }
+
+    private void addCandidate(int item)
+    {
+        if(itemMark[item] == markStamp)
+            return;
+        itemMark[item] = markStamp;
+        if(numCandidates == candidates.length)
+            candidates = Arrays.copyOf(candidates, 2 * candidates.length);
+        candidates[numCandidates++] = item;
+    }
+
+    private int col(int x)
+    {
+        int c = Math.floorDiv(x, cellSize);
+        return c < 0 ? 0 : (c >= numCols ? numCols - 1 : c);
+    }
+
+    private int row(int y)
+    {
+        int r = Math.floorDiv(y, cellSize);
+        return r < 0 ? 0 : (r >= numRows ? numRows - 1 : r);
+    }
+}
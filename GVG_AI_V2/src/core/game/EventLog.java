@@ -0,0 +1,237 @@
+package core.game;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import tools.Vector2d;
+
+/**
+ * Append-only history of the events of a game, stored in primitive columns.
+ *
+ * Events are kept in chunks of fixed size. A copy of the log shares all the chunks
+ * with the original and only keeps its own length, so copying a game state does not
+ * copy its history. When two copies append after the same point, the one that
+ * arrives second copies the part of the last chunk it needs, and the rest of the
+ * chunks stay shared. Entries below the length of a log are never written again.
+ *
+ * Events are stored with the same rules as the TreeSet&lt;Event&gt; used before:
+ * an event equal (compareTo) to another of the same game step is not added.
+ * getEvents() builds that TreeSet when it is requested.
+ */
+public class EventLog
+{
+    private static final int CHUNK_SIZE = 64;
+
+    /**
+     * Block of events. 'used' is the number of entries written by any of the
+     * logs that share the chunk.
+     */
+    private static final class Chunk
+    {
+        final int[] gameStep = new int[CHUNK_SIZE];
+        final boolean[] fromAvatar = new boolean[CHUNK_SIZE];
+        final int[] activeTypeId = new int[CHUNK_SIZE];
+        final int[] passiveTypeId = new int[CHUNK_SIZE];
+        final int[] activeSpriteId = new int[CHUNK_SIZE];
+        final int[] passiveSpriteId = new int[CHUNK_SIZE];
+        final double[] x = new double[CHUNK_SIZE];
+        final double[] y = new double[CHUNK_SIZE];
+        int used;
+
+        /**
+         * Reserves the entry 'offset' for the caller, if nobody wrote it before.
+         */
+        synchronized boolean claim(int offset)
+        {
+            if(used != offset)
+                return false;
+            used++;
+            return true;
+        }
+
+        Chunk copyPrefix(int n)
+        {
+            Chunk c = new Chunk();
+            System.arraycopy(gameStep, 0, c.gameStep, 0, n);
+            System.arraycopy(fromAvatar, 0, c.fromAvatar, 0, n);
+            System.arraycopy(activeTypeId, 0, c.activeTypeId, 0, n);
+            System.arraycopy(passiveTypeId, 0, c.passiveTypeId, 0, n);
+            System.arraycopy(activeSpriteId, 0, c.activeSpriteId, 0, n);
+            System.arraycopy(passiveSpriteId, 0, c.passiveSpriteId, 0, n);
+            System.arraycopy(x, 0, c.x, 0, n);
+            System.arraycopy(y, 0, c.y, 0, n);
+            c.used = n;
+            return c;
+        }
+    }
+
+    private Chunk[] chunks;
+    private boolean chunksShared;
+    private int size;
+
+    //Materialized view of the first viewSize events.
+    private TreeSet<Event> view;
+    private int viewSize;
+
+    public EventLog()
+    {
+        chunks = new Chunk[4];
+    }
+
+    private EventLog(EventLog other)
+    {
+        chunks = other.chunks;
+        size = other.size;
+        chunksShared = true;
+        other.chunksShared = true;
+    }
+
+    /**
+     * Creates a copy of this log, sharing all its events. O(1).
+     * @return the copy.
+     */
+    public EventLog copy()
+    {
+        return new EventLog(this);
+    }
+
+    /**
+     * Removes all the events of this log. Copies are not affected.
+     */
+    public void clear()
+    {
+        chunks = new Chunk[4];
+        chunksShared = false;
+        size = 0;
+        view = null;
+        viewSize = 0;
+    }
+
+    /**
+     * Adds an event at the end of the log.
+     * @param gameStep when the event happened.
+     * @param fromAvatar did the avatar trigger the event (false), or something created by him (true)?
+     * @param activeTypeId type of the sprite (avatar or from avatar).
+     * @param passiveTypeId type of the sprite that collided with activeTypeId.
+     * @param activeSpriteId sprite ID of the avatar (or something created by the avatar).
+     * @param passiveSpriteId sprite ID of the other object.
+     * @param x x coordinate of the position where the event took place.
+     * @param y y coordinate of the position where the event took place.
+     */
+    public void add(int gameStep, boolean fromAvatar, int activeTypeId, int passiveTypeId,
+                    int activeSpriteId, int passiveSpriteId, double x, double y)
+    {
+        //Events of the same step are at the end of the log. Skip duplicates (by compareTo).
+        for(int i = size - 1; i >= 0 && getGameStep(i) == gameStep; --i)
+        {
+            Chunk c = chunks[i / CHUNK_SIZE];
+            int o = i % CHUNK_SIZE;
+            if(c.fromAvatar[o] == fromAvatar && c.passiveTypeId[o] == passiveTypeId && c.activeTypeId[o] == activeTypeId)
+                return;
+        }
+
+        int index = size / CHUNK_SIZE;
+        int offset = size % CHUNK_SIZE;
+        Chunk chunk = index < chunks.length ? chunks[index] : null;
+        if(chunk == null || !chunk.claim(offset))
+        {
+            //New chunk, or another log already wrote here: this log gets its own chunk.
+            chunk = (chunk == null) ? new Chunk() : chunk.copyPrefix(offset);
+            chunk.claim(offset);
+            if(index >= chunks.length)
+                chunks = Arrays.copyOf(chunks, 2 * chunks.length);
+            else if(chunksShared)
+                chunks = chunks.clone();
+            chunksShared = false;
+            chunks[index] = chunk;
+        }
+
+        chunk.gameStep[offset] = gameStep;
+        chunk.fromAvatar[offset] = fromAvatar;
+        chunk.activeTypeId[offset] = activeTypeId;
+        chunk.passiveTypeId[offset] = passiveTypeId;
+        chunk.activeSpriteId[offset] = activeSpriteId;
+        chunk.passiveSpriteId[offset] = passiveSpriteId;
+        chunk.x[offset] = x;
+        chunk.y[offset] = y;
+        size++;
+    }
+
+    /**
+     * @return number of events in the log.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public int getGameStep(int i)
+    {
+        return chunks[i / CHUNK_SIZE].gameStep[i % CHUNK_SIZE];
+    }
+
+    public boolean isFromAvatar(int i)
+    {
+        return chunks[i / CHUNK_SIZE].fromAvatar[i % CHUNK_SIZE];
+    }
+
+    public int getActiveTypeId(int i)
+    {
+        return chunks[i / CHUNK_SIZE].activeTypeId[i % CHUNK_SIZE];
+    }
+
+    public int getPassiveTypeId(int i)
+    {
+        return chunks[i / CHUNK_SIZE].passiveTypeId[i % CHUNK_SIZE];
+    }
+
+    public int getActiveSpriteId(int i)
+    {
+        return chunks[i / CHUNK_SIZE].activeSpriteId[i % CHUNK_SIZE];
+    }
+
+    public int getPassiveSpriteId(int i)
+    {
+        return chunks[i / CHUNK_SIZE].passiveSpriteId[i % CHUNK_SIZE];
+    }
+
+    public double getX(int i)
+    {
+        return chunks[i / CHUNK_SIZE].x[i % CHUNK_SIZE];
+    }
+
+    public double getY(int i)
+    {
+        return chunks[i / CHUNK_SIZE].y[i % CHUNK_SIZE];
+    }
+
+    /**
+     * Creates an Event object with the information of an entry.
+     * @param i index of the event.
+     * @return a new Event.
+     */
+    public Event get(int i)
+    {
+        Chunk c = chunks[i / CHUNK_SIZE];
+        int o = i % CHUNK_SIZE;
+        return new Event(c.gameStep[o], c.fromAvatar[o], c.activeTypeId[o], c.passiveTypeId[o],
+                c.activeSpriteId[o], c.passiveSpriteId[o], new Vector2d(c.x[o], c.y[o]));
+    }
+
+    /**
+     * Gets the events as a set ordered asc. by game step. The set is built the first
+     * time it is requested and only extended with the new events afterwards.
+     * @return the events of the log.
+     */
+    public TreeSet<Event> getEvents()
+    {
+        if(view == null || viewSize > size)
+        {
+            view = new TreeSet<Event>();
+            viewSize = 0;
+        }
+        for(; viewSize < size; ++viewSize)
+            view.add(get(viewSize));
+        return view;
+    }
+}
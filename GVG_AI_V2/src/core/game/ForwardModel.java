@@ -1,6 +1,7 @@
 package core.game;
 
 import java.awt.Dimension;
+import java.lang.ref.WeakReference;
 import java.util.*;
 
 import core.competition.CompetitionParameters;
@@ -98,7 +99,49 @@ public class ForwardModel extends Game
     /**
      * Observation grid
      */
-    private ArrayList<Observation>[][] observationGrid;
+    private ObservationGrid observationGrid;
+
+    /**
+     * Game this model was last updated from. If the next update comes from the same
+     * game and this model has not been advanced in between, the update is incremental.
+     * The reference is weak, so a model does not keep a discarded game alive.
+     */
+    private WeakReference<Game> syncSource;
+
+    /**
+     * Versions of the TIME effects of the source game, and of this model, after the
+     * last update. If neither has changed, the time effects of this model are kept.
+     */
+    private int syncedTimeEffects, ownTimeEffects;
+
+    /**
+     * Last 'hidden' string parsed, and its result for this player.
+     */
+    private String lastHidden;
+    private boolean lastHiddenValue;
+
+    /**
+     * Incremented every time the state of this model changes (update, advance).
+     */
+    private int stateVersion;
+
+    /**
+     * Cache of getPositionsFrom(), per category of sprites. A result is valid if its
+     * stamp is positionsStamp, that changes with the state version and the reference.
+     */
+    @SuppressWarnings("unchecked")
+    private ArrayList<Observation>[][] cachedPositions = new ArrayList[Types.TYPE_MOVABLE + 1][];
+    private int[] cachedStamp = new int[Types.TYPE_MOVABLE + 1];
+    private boolean[] cachedSorted = new boolean[Types.TYPE_MOVABLE + 1];
+    private int positionsStamp;
+    private int positionsVersion = -1;
+    private boolean positionsRefNull;
+    private double positionsRefX, positionsRefY;
+
+    /**
+     * Auxiliary list for the sprites that can be reused by copyInto().
+     */
+    private ArrayList<VGDLSprite> spareSprites = new ArrayList<VGDLSprite>();
 
     /**
      * Constructor for StateObservation. Initializes everything
@@ -119,25 +162,67 @@ public class ForwardModel extends Game
     /**
      * Dumps the game state into 'this' object. Effectively, creates a state observation
      * from a game state (of class Game).
+     *
+     * The event history is shared with the game (see EventLog), so the cost of an update
+     * does not grow with the length of the game. When the game is the same one of the
+     * last update, and this model has not been advanced since then, the shield lists are
+     * reused, and so are the time effects if the game has not changed them. Sprites are
+     * always copied, as every sprite of the game is updated in every tick (movement and
+     * animation counters).
      * @param a_gameState game to take the state from.
      */
-    @SuppressWarnings("unchecked")
     final public void update(Game a_gameState)
     {
+        update(a_gameState, false);
+    }
+
+    /**
+     * Dumps the game state into 'this' object.
+     * @param a_gameState game to take the state from.
+     * @param reuseSprites if true, the sprite groups and collections of this model are
+     *                     reused, and the sprites of this model are overwritten (copyTo)
+     *                     with the sprites of the game that have the same ID and class.
+     */
+    @SuppressWarnings("unchecked")
+    private void update(Game a_gameState, boolean reuseSprites)
+    {
+        stateVersion++;
+        boolean sameSource = syncSource != null && syncSource.get() == a_gameState;
+        boolean incremental = (sameSource || reuseSprites) && spriteGroups != null;
+
         int numSpriteTypes = a_gameState.spriteGroups.length;
-        kill_list = new ArrayList<VGDLSprite>();
-        bucketList = new Bucket[numSpriteTypes];
-        historicEvents = new TreeSet<Event>();
-        shieldedEffects = new ArrayList[numSpriteTypes];
+        if(kill_list == null)
+            kill_list = new KillList();
+        else
+            kill_list.clear();
+        if(!incremental || shieldedEffects.length != numSpriteTypes)
+        {
+            shieldedEffects = new ArrayList[numSpriteTypes];
+            for(int i = 0; i < numSpriteTypes; ++i)
+                shieldedEffects[i] = new ArrayList<>();
+        }
 
         //Copy of sprites from the game.
-        spriteGroups = new SpriteGroup[numSpriteTypes];
+        reuseSprites = reuseSprites && spriteGroups.length == numSpriteTypes;
+        if(!reuseSprites)
+            spriteGroups = new SpriteGroup[numSpriteTypes];
         num_sprites = 0;
 
         for(int i = 0; i < spriteGroups.length; ++i)
         {
-            bucketList[i] = new Bucket();
-            spriteGroups[i] = new SpriteGroup(i);
+            //Sprites of this model that can be overwritten, in the order they had.
+            ArrayList<VGDLSprite> previous = null;
+            int nPrevious = 0, next = 0;
+            if(reuseSprites)
+            {
+                previous = spareSprites;
+                ArrayList<VGDLSprite> sprites = spriteGroups[i].getSprites();
+                nPrevious = sprites.size();
+                for(int j = 0; j < nPrevious; ++j)
+                    previous.add(sprites.get(j));
+                spriteGroups[i].clear();
+            }else
+                spriteGroups[i] = new SpriteGroup(i);
 
             /**
              * Index in the sprite group passed to the checkSpriteFeatures method to
@@ -148,54 +233,116 @@ public class ForwardModel extends Game
             if(spriteIt != null) while(spriteIt.hasNext())
             {
                 VGDLSprite sp = spriteIt.next();
-                VGDLSprite spCopy = sp.copy();
+                VGDLSprite spCopy;
+
+                //Both lists are sorted by ID (sprites are added with increasing IDs).
+                while(next < nPrevious && previous.get(next).spriteID < sp.spriteID)
+                    next++;
+                if(next < nPrevious && previous.get(next).spriteID == sp.spriteID
+                        && previous.get(next).getClass() == sp.getClass())
+                {
+                    spCopy = previous.get(next++);
+                    sp.copyTo(spCopy);
+                }else
+                    spCopy = sp.copy();
 
                 spriteGroups[i].addSprite(spCopy.spriteID, spCopy);
 
-                String hidden = "False";
-                if (spCopy.hidden != null) {
-                    String[] split = spCopy.hidden.split(",");
-                    if (playerID > split.length - 1)
-                        hidden = split[split.length - 1];
-                    else
-                        hidden = split[playerID];
-                }
-                if(!Boolean.parseBoolean(hidden)) {
+                if(!isHidden(spCopy.hidden)) {
                     checkSpriteFeatures(spCopy, i);
                     updateObservation(spCopy);
                 }
             }
+            if(previous != null)
+                previous.clear();
 
             int nSprites = spriteGroups[i].numSprites();
             num_sprites += nSprites;
 
             //copy the shields
-            shieldedEffects[i] = new ArrayList<>();
+            shieldedEffects[i].clear();
             for(Pair p : a_gameState.shieldedEffects[i])
                 shieldedEffects[i].add(p.copy());
         }
 
-        //events:
-        for (Event historicEvent : a_gameState.historicEvents) {
-            historicEvents.add(historicEvent.copy());
-        }
+        //events (shared, copy on write):
+        historicEvents = a_gameState.historicEvents.copy();
 
-        //copy the time effects:
-        this.timeEffects = new TreeSet<TimeEffect>();
-        Iterator<TimeEffect> timeEffects = a_gameState.timeEffects.descendingIterator();
-        while(timeEffects.hasNext())
+        //copy the time effects, unless they are the same ones of the last update:
+        if(!sameSource || this.timeEffects == null || syncedTimeEffects != a_gameState.timeEffectsVersion
+                || ownTimeEffects != this.timeEffectsVersion)
         {
-            TimeEffect tef = timeEffects.next().copy();
-            this.timeEffects.add(tef);
+            if(reuseSprites)
+                this.timeEffects.clear();
+            else
+                this.timeEffects = new TreeSet<TimeEffect>();
+            Iterator<TimeEffect> timeEffects = a_gameState.timeEffects.descendingIterator();
+            while(timeEffects.hasNext())
+            {
+                TimeEffect tef = timeEffects.next().copy();
+                this.timeEffects.add(tef);
+            }
+            syncedTimeEffects = a_gameState.timeEffectsVersion;
+            ownTimeEffects = ++this.timeEffectsVersion;
         }
         //System.out.println("Tef size: " + this.timeEffects.size());
 
         //Game state variables:
         this.gameTick = a_gameState.gameTick;
         this.isEnded = a_gameState.isEnded;
-        this.avatarLastAction = new Types.ACTIONS[no_players];
+        if(!reuseSprites || avatarLastAction.length != no_players)
+            this.avatarLastAction = new Types.ACTIONS[no_players];
         System.arraycopy(a_gameState.avatarLastAction, 0, avatarLastAction, 0, no_players);
         this.nextSpriteID = a_gameState.nextSpriteID;
+
+        if(!sameSource)
+            syncSource = new WeakReference<>(a_gameState);
+    }
+
+    /**
+     * Copies the state of this model into another forward model, reusing its arrays,
+     * collections and the sprites it has with the same ID and class than the sprites
+     * of this model. The result is the same as copy(), but the target keeps its own
+     * random generator.
+     * @param target model to overwrite. Any model can be used (it takes the game and
+     *               player of this one), but only a model of the same game saves work.
+     */
+    final public void copyInto(ForwardModel target)
+    {
+        if(target == this)
+            return;
+        if(target.playerID != playerID)
+        {
+            target.playerID = playerID;
+            target.lastHidden = null;
+        }
+        boolean sameGame = target.classConst == classConst && target.spriteGroups != null;
+        target.initNonVolatile(this, sameGame);
+        target.is_stochastic = false;
+        target.update(this, sameGame);
+    }
+
+    /**
+     * Checks if a sprite is hidden for the player of this model. The 'hidden'
+     * parameter is a comma separated list of booleans, one per player.
+     * @param hidden value of the parameter, null if not defined.
+     * @return true if the sprite is hidden.
+     */
+    private boolean isHidden(String hidden)
+    {
+        if (hidden == null)
+            return false;
+        if (hidden != lastHidden) {
+            String[] split = hidden.split(",");
+            String value;
+            if (playerID > split.length - 1)
+                value = split[split.length - 1];
+            else
+                value = split[playerID];
+            lastHiddenValue = Boolean.parseBoolean(value);
+            lastHidden = hidden;
+        }
+        return lastHiddenValue;
     }
 
     /**
@@ -208,22 +355,20 @@ public class ForwardModel extends Game
         int spriteId = sprite.spriteID;
         boolean moved = false, newObs = false;
 
-        Vector2d oldPosition = null;
-
         Observation obs = observations.get(spriteId);
         if(obs != null)
         {
-            oldPosition = obs.position;
-            Vector2d position = sprite.getPosition();
-            moved = ! obs.position.equals(position);
-            obs.position = position;
+            //The position is only replaced if the sprite moved.
+            moved = obs.position.x != sprite.rect.x || obs.position.y != sprite.rect.y;
+            if(moved)
+                obs.position = sprite.getPosition();
         }else
         {
             obs = createSpriteObservation(sprite);
             newObs = true;
         }
 
-        updateGrid(obs, newObs, moved, oldPosition);
+        updateGrid(obs, newObs, moved);
     }
 
     /**
@@ -237,7 +382,7 @@ public class ForwardModel extends Game
         Observation obs = observations.get(spriteId);
         if(obs != null)
         {
-            removeObservationFromGrid(obs, obs.position);
+            removeObservationFromGrid(obs);
             observations.remove(spriteId);
         }
     }
@@ -247,45 +392,27 @@ public class ForwardModel extends Game
      * @param obs observation to update
      * @param newObs if this is a new observation.
      * @param moved if it is a past observation, and it moved.
-     * @param oldPosition the old position of this observation if it moved.
      */
-    private void updateGrid(Observation obs, boolean newObs, boolean moved, Vector2d oldPosition)
+    private void updateGrid(Observation obs, boolean newObs, boolean moved)
     {
         //Insert observation in the grid position.
         if(newObs || moved)
         {
             //First, remove observation if the sprite moved.
             if(moved)
-                removeObservationFromGrid(obs, oldPosition);
+                removeObservationFromGrid(obs);
 
             addObservationToGrid(obs, obs.position);
         }
     }
 
     /**
-     * Removes an observation to the grid, from the position specified.
+     * Removes an observation from the grid, from all the cells it was added to.
      * @param obs observation to delete.
-     * @param position where the sprite was located last time seen.
      */
-    private void removeObservationFromGrid(Observation obs, Vector2d position)
+    private void removeObservationFromGrid(Observation obs)
     {
-        int x = (int) position.x / block_size;
-        boolean validX = x >= 0 && x < observationGrid.length;
-        boolean xPlus = (position.x % block_size) > 0 && (x+1 < observationGrid.length);
-        int y = (int) position.y / block_size;
-        boolean validY = y >= 0 && y < observationGrid[0].length;
-        boolean yPlus = (position.y % block_size) > 0 && (y+1 < observationGrid[0].length);
-
-        if(validX && validY)
-        {
-            observationGrid[x][y].remove(obs);
-            if(xPlus)
-                observationGrid[x+1][y].remove(obs);
-            if(yPlus)
-                observationGrid[x][y+1].remove(obs);
-            if(xPlus && yPlus)
-                observationGrid[x+1][y+1].remove(obs);
-        }
+        observationGrid.remove(obs);
     }
 
     /**
@@ -296,21 +423,21 @@ public class ForwardModel extends Game
     private void addObservationToGrid(Observation obs, Vector2d position)
     {
         int x = (int) position.x / block_size;
-        boolean validX = x >= 0 && x < observationGrid.length;
-        boolean xPlus = (position.x % block_size) > 0 && (x+1 < observationGrid.length);
+        boolean validX = x >= 0 && x < observationGrid.getWidth();
+        boolean xPlus = (position.x % block_size) > 0 && (x+1 < observationGrid.getWidth());
         int y = (int) position.y / block_size;
-        boolean validY = y >= 0 && y < observationGrid[0].length;
-        boolean yPlus = (position.y % block_size) > 0 && (y+1 < observationGrid[0].length);
+        boolean validY = y >= 0 && y < observationGrid.getHeight();
+        boolean yPlus = (position.y % block_size) > 0 && (y+1 < observationGrid.getHeight());
 
         if(validX && validY)
         {
-            observationGrid[x][y].add(obs);
+            observationGrid.add(obs, x, y);
             if(xPlus)
-                observationGrid[x+1][y].add(obs);
+                observationGrid.add(obs, x+1, y);
             if(yPlus)
-                observationGrid[x][y+1].add(obs);
+                observationGrid.add(obs, x, y+1);
             if(xPlus && yPlus)
-                observationGrid[x+1][y+1].add(obs);
+                observationGrid.add(obs, x+1, y+1);
         }
     }
 
@@ -320,11 +447,11 @@ public class ForwardModel extends Game
     public void printObservationGrid()
     {
         System.out.println("#########################");
-        for(int j = 0; j < observationGrid[0].length; ++j)
+        for(int j = 0; j < observationGrid.getHeight(); ++j)
         {
-            for(int i = 0; i < observationGrid.length; ++i)
+            for(int i = 0; i < observationGrid.getWidth(); ++i)
             {
-                int n = observationGrid[i][j].size();
+                int n = observationGrid.getSize(i, j);
                 if(n > 0)
                     System.out.print(n);
                 else
@@ -459,8 +586,19 @@ public class ForwardModel extends Game
      * effects, etc). 'this' takes these from a_gameState,
      * @param a_gameState Reference to the original game
      */
-    @SuppressWarnings("unchecked")
     private void initNonVolatile(Game a_gameState)
+    {
+        initNonVolatile(a_gameState, false);
+    }
+
+    /**
+     * Initializes the non volatile elements of a game (constructors, termination conditions,
+     * effects, etc). 'this' takes these from a_gameState,
+     * @param a_gameState Reference to the original game
+     * @param reuse if true, the arrays and collections of this model are cleared and
+     *              reused when they have the right size, instead of creating new ones.
+     */
+    private void initNonVolatile(Game a_gameState, boolean reuse)
     {
         //We skip this.resource_colors and sampleRandom.
         this.spriteOrder = a_gameState.spriteOrder;
@@ -482,7 +620,8 @@ public class ForwardModel extends Game
         this.MAX_SPRITES = a_gameState.MAX_SPRITES;
         this.no_players = a_gameState.no_players;
         this.no_counters = a_gameState.no_counters;
-        this.avatarLastAction = new Types.ACTIONS[no_players];
+        if(!reuse || avatarLastAction == null || avatarLastAction.length != no_players)
+            this.avatarLastAction = new Types.ACTIONS[no_players];
         System.arraycopy(a_gameState.avatarLastAction, 0, avatarLastAction, 0, no_players);
         this.avatars = new MovingAvatar[no_players];
         for (int i = 0; i < no_players; i++) {
@@ -491,25 +630,47 @@ public class ForwardModel extends Game
                 avatars[i].setKeyHandler(a_gameState.avatars[i].getKeyHandler());
             }
         }
-        this.counter = new int[no_counters];
+        if(!reuse || counter == null || counter.length != no_counters)
+            this.counter = new int[no_counters];
         System.arraycopy(a_gameState.counter, 0, this.counter, 0, no_counters);
 
         //create the boolean maps of sprite types.
-        npcList = new boolean[a_gameState.spriteGroups.length];
-        immList = new boolean[a_gameState.spriteGroups.length];
-        movList = new boolean[a_gameState.spriteGroups.length];
-        resList = new boolean[a_gameState.spriteGroups.length];
-        portalList  = new boolean[a_gameState.spriteGroups.length];
-        fromAvatar  = new boolean[a_gameState.spriteGroups.length];
-        unknownList = new boolean[a_gameState.spriteGroups.length];
-        visibleList = new boolean[no_players][a_gameState.spriteGroups.length];
-        playerList  = new boolean[a_gameState.spriteGroups.length];
-
-        observations = new HashMap<Integer, Observation>();
-        observationGrid = new ArrayList[screenSize.width/block_size][screenSize.height/block_size];
-        for(int i = 0; i < observationGrid.length; ++i)
-            for(int j = 0; j < observationGrid[i].length; ++j)
-                observationGrid[i][j] = new ArrayList<Observation>();
+        int numSpriteTypes = a_gameState.spriteGroups.length;
+        if(!reuse || npcList.length != numSpriteTypes || visibleList.length != no_players)
+        {
+            npcList = new boolean[numSpriteTypes];
+            immList = new boolean[numSpriteTypes];
+            movList = new boolean[numSpriteTypes];
+            resList = new boolean[numSpriteTypes];
+            portalList  = new boolean[numSpriteTypes];
+            fromAvatar  = new boolean[numSpriteTypes];
+            unknownList = new boolean[numSpriteTypes];
+            visibleList = new boolean[no_players][numSpriteTypes];
+            playerList  = new boolean[numSpriteTypes];
+        }else
+        {
+            Arrays.fill(npcList, false);
+            Arrays.fill(immList, false);
+            Arrays.fill(movList, false);
+            Arrays.fill(resList, false);
+            Arrays.fill(portalList, false);
+            Arrays.fill(fromAvatar, false);
+            Arrays.fill(unknownList, false);
+            for(int i = 0; i < no_players; ++i)
+                Arrays.fill(visibleList[i], false);
+            Arrays.fill(playerList, false);
+        }
+
+        int gridWidth = screenSize.width/block_size, gridHeight = screenSize.height/block_size;
+        if(!reuse || !observationGrid.fits(gridWidth, gridHeight))
+        {
+            observations = new HashMap<Integer, Observation>();
+            observationGrid = new ObservationGrid(gridWidth, gridHeight);
+        }else
+        {
+            observations.clear();
+            observationGrid.clear();
+        }
 
         this.pathf = a_gameState.pathf;
     }
@@ -629,6 +790,8 @@ public class ForwardModel extends Game
      * Auxiliary method for advance methods, to avoid code duplication.
      */
     private void advance_aux() {
+        syncSource = null;
+        stateVersion++;
         eventHandling();
         clearAll(this);
         terminationHandling();
@@ -939,14 +1102,75 @@ public class ForwardModel extends Game
 
     /** Methods that return positions of things **/
 
+    /**
+     * Gets the boolean map of sprite types of a category.
+     * @param category category of sprites (Types.TYPE_NPC, Types.TYPE_STATIC, etc.)
+     * @return the boolean map, null if the category is not valid.
+     */
+    private boolean[] getCategoryList(int category)
+    {
+        switch (category)
+        {
+            case Types.TYPE_AVATAR: return playerList;
+            case Types.TYPE_RESOURCE: return resList;
+            case Types.TYPE_PORTAL: return portalList;
+            case Types.TYPE_NPC: return npcList;
+            case Types.TYPE_STATIC: return immList;
+            case Types.TYPE_FROMAVATAR: return fromAvatar;
+            case Types.TYPE_MOVABLE: return movList;
+        }
+        return null;
+    }
+
+    /**
+     * Gets position from the sprites of a category.
+     *
+     * Results are cached until the state changes (stateVersion) or another reference
+     * position is used, as the reference and distance are stored in the (shared)
+     * observations. A cached result is returned again to the callers that ask for it,
+     * so the lists must not be modified. A new state gets new lists.
+     * @param category category of sprites, that indicates which sprite types must be considered.
+     * @param refPosition reference position, null for no reference.
+     * @param sort if the lists must be sorted by distance to refPosition.
+     * @return List of arrays with Observations. Each entry in the array corresponds to a different
+     * sprite type.
+     */
+    private ArrayList<Observation>[] getPositionsFrom(int category, Vector2d refPosition, boolean sort)
+    {
+        Vector2d reference = refPosition;
+        if(refPosition == null)
+            reference = Types.NIL;
+
+        //Observations are updated with the reference: a different one invalidates all results.
+        if(positionsVersion != stateVersion || positionsRefNull != (refPosition == null) ||
+                positionsRefX != reference.x || positionsRefY != reference.y)
+        {
+            positionsVersion = stateVersion;
+            positionsRefNull = (refPosition == null);
+            positionsRefX = reference.x;
+            positionsRefY = reference.y;
+            positionsStamp++;
+        }
+        if(cachedStamp[category] == positionsStamp && cachedSorted[category] == sort)
+            return cachedPositions[category];
+
+        ArrayList<Observation>[] observations = getPositionsFrom(getCategoryList(category), reference, sort);
+        cachedPositions[category] = observations;
+        cachedStamp[category] = positionsStamp;
+        cachedSorted[category] = sort;
+        return observations;
+    }
+
     /**
      * Gets position from the sprites corresponding to the boolean map passed by parameter.
      * @param groupArray boolean map that indicates which sprite types must be considered.
+     * @param reference reference position of the observations.
+     * @param sort if the lists must be sorted by distance to reference.
      * @return List of arrays with Observations. Each entry in the array corresponds to a different
      * sprite type.
      */
     @SuppressWarnings("unchecked")
-    private ArrayList<Observation>[] getPositionsFrom(boolean[] groupArray, Vector2d refPosition)
+    private ArrayList<Observation>[] getPositionsFrom(boolean[] groupArray, Vector2d reference, boolean sort)
     {
         //First, get how many types we have. Need to consider hidden sprites out.
         int numDiffTypes = 0;
@@ -963,9 +1187,6 @@ public class ForwardModel extends Game
             return null; //Wait, no types? no sprites of this group then.
 
         ArrayList<Observation>[] observations = new ArrayList[numDiffTypes];
-        Vector2d reference = refPosition;
-        if(refPosition == null)
-            reference = Types.NIL;
 
         int idx = 0;
         for(int i = 0; i < groupArray.length; ++i)
@@ -973,20 +1194,24 @@ public class ForwardModel extends Game
             //For each one of the sprite types that belong to the specified category
             if(groupArray[i] && visibleList[playerID][i])
             {
-                observations[idx] = new ArrayList<Observation>();
-                Iterator<VGDLSprite> spriteIt = spriteGroups[i].getSpriteIterator();
-                if(spriteIt != null) while(spriteIt.hasNext())
+                ArrayList<VGDLSprite> sprites = spriteGroups[i].getSprites();
+                observations[idx] = new ArrayList<Observation>(sprites.size());
+                for(int j = 0; j < sprites.size(); ++j)
                 {
-                    VGDLSprite sp = spriteIt.next();
+                    VGDLSprite sp = sprites.get(j);
 
+                    //Observations are reused, and so is their position if the sprite didn't move.
                     Observation observation = getSpriteObservation(sp);
-                    observation.update(i, sp.spriteID, sp.getPosition(), reference, getSpriteCategory(sp));
+                    Vector2d position = observation.position;
+                    if(position.x != sp.rect.x || position.y != sp.rect.y)
+                        position = sp.getPosition();
+                    observation.update(i, sp.spriteID, position, reference, getSpriteCategory(sp));
 
                     observation.reference = reference;
                     observations[idx].add(observation);
                 }
 
-                if(refPosition != null)
+                if(sort)
                 {
                     Collections.sort(observations[idx]);
                 }
@@ -998,22 +1223,122 @@ public class ForwardModel extends Game
         return observations;
     }
 
+    /**
+     * Gets the observations of a category nearest to a reference position, without
+     * sorting all of them: a bounded heap keeps the k nearest seen so far.
+     * @param category category of sprites (Types.TYPE_NPC, Types.TYPE_STATIC, etc.)
+     * @param refPosition reference position.
+     * @param k maximum number of observations to return.
+     * @return up to k observations, ordered asc. by distance to refPosition. Observations
+     * at the same distance keep the order of the lists of getPositionsFrom().
+     */
+    public Observation[] getNearestPositions(int category, Vector2d refPosition, int k)
+    {
+        ArrayList<Observation>[] positions = (getCategoryList(category) == null) ? null :
+                getPositionsFrom(category, refPosition, false);
+        if(positions == null || k <= 0)
+            return new Observation[0];
+
+        //Max-heap (farthest at the root) of the k nearest observations, and their order.
+        Observation[] heap = new Observation[k];
+        int[] order = new int[k];
+        int n = 0, seq = 0;
+        for(ArrayList<Observation> list : positions)
+        {
+            for(int i = 0; i < list.size(); ++i, ++seq)
+            {
+                Observation obs = list.get(i);
+                if(n < k)
+                {
+                    heap[n] = obs;
+                    order[n] = seq;
+                    siftUp(heap, order, n++);
+                }else if(nearer(obs, seq, heap[0], order[0]))
+                {
+                    heap[0] = obs;
+                    order[0] = seq;
+                    siftDown(heap, order, 0, n);
+                }
+            }
+        }
+
+        Observation[] nearest = new Observation[n];
+        for(int i = n - 1; i >= 0; --i)
+        {
+            nearest[i] = heap[0];
+            heap[0] = heap[i];
+            order[0] = order[i];
+            siftDown(heap, order, 0, i);
+        }
+        return nearest;
+    }
+
+    private static boolean nearer(Observation a, int orderA, Observation b, int orderB)
+    {
+        return a.sqDist < b.sqDist || (a.sqDist == b.sqDist && orderA < orderB);
+    }
+
+    private static void siftUp(Observation[] heap, int[] order, int i)
+    {
+        while(i > 0)
+        {
+            int parent = (i - 1) / 2;
+            if(!nearer(heap[parent], order[parent], heap[i], order[i]))
+                return;
+            swap(heap, order, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(Observation[] heap, int[] order, int i, int n)
+    {
+        while(true)
+        {
+            int child = 2 * i + 1;
+            if(child >= n)
+                return;
+            if(child + 1 < n && nearer(heap[child], order[child], heap[child + 1], order[child + 1]))
+                child++;
+            if(!nearer(heap[i], order[i], heap[child], order[child]))
+                return;
+            swap(heap, order, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(Observation[] heap, int[] order, int i, int j)
+    {
+        Observation o = heap[i]; heap[i] = heap[j]; heap[j] = o;
+        int t = order[i]; order[i] = order[j]; order[j] = t;
+    }
+
     /**
      * Returns a grid with all observations in the level.
      * @return the grid of observations
      */
     public ArrayList<Observation>[][] getObservationGrid()
+    {
+        return observationGrid.getLists();
+    }
+
+    /**
+     * Returns the grid of observations of the level, with accessors that don't
+     * create lists (see ObservationGrid).
+     * @return the grid of observations.
+     */
+    public ObservationGrid getObservationGridCells()
     {
         return observationGrid;
     }
 
     /**
-     * Returns the list of historic events happened in this game so far.
+     * Returns the list of historic events happened in this game so far. The set is
+     * built from the event log when requested.
      * @return list of historic events happened in this game so far.
      */
     public TreeSet<Event> getEventsHistory()
     {
-        return historicEvents;
+        return historicEvents.getEvents();
     }
 
     /**
@@ -1029,7 +1354,7 @@ public class ForwardModel extends Game
      */
     public ArrayList<Observation>[] getNPCPositions(Vector2d refPosition)
     {
-        return getPositionsFrom(npcList, refPosition);
+        return getPositionsFrom(Types.TYPE_NPC, refPosition, refPosition != null);
     }
 
     /**
@@ -1039,7 +1364,7 @@ public class ForwardModel extends Game
      * @return a list with the observations of static objects in the game..
      */
     public ArrayList<Observation>[] getImmovablePositions(Vector2d refPosition) {
-        return getPositionsFrom(immList, refPosition);
+        return getPositionsFrom(Types.TYPE_STATIC, refPosition, refPosition != null);
     }
 
     /**
@@ -1049,7 +1374,7 @@ public class ForwardModel extends Game
      * @return a list with observations of sprites that move, but are NOT NPCs.
      */
     public ArrayList<Observation>[] getMovablePositions(Vector2d refPosition) {
-        return getPositionsFrom(movList, refPosition);
+        return getPositionsFrom(Types.TYPE_MOVABLE, refPosition, refPosition != null);
     }
 
     /*
@@ -1059,7 +1384,7 @@ public class ForwardModel extends Game
     * @return a list with observations of resources.
     */
     public ArrayList<Observation>[] getResourcesPositions(Vector2d refPosition) {
-        return getPositionsFrom(resList, refPosition);
+        return getPositionsFrom(Types.TYPE_RESOURCE, refPosition, refPosition != null);
     }
 
     /*
@@ -1069,7 +1394,7 @@ public class ForwardModel extends Game
      * @return a list with observations of portals.
      */
     public ArrayList<Observation>[] getPortalsPositions(Vector2d refPosition) {
-        return getPositionsFrom(portalList, refPosition);
+        return getPositionsFrom(Types.TYPE_PORTAL, refPosition, refPosition != null);
     }
 
     /**
@@ -1080,7 +1405,7 @@ public class ForwardModel extends Game
      */
     public ArrayList<Observation>[] getFromAvatarSpPositions(Vector2d refPosition)
     {
-        return getPositionsFrom(fromAvatar, refPosition);
+        return getPositionsFrom(Types.TYPE_FROMAVATAR, refPosition, refPosition != null);
     }
 
 
@@ -96,6 +96,11 @@ public abstract class Game {
 	 */
 	protected TreeSet<TimeEffect> timeEffects;
 
+	/**
+	 * Incremented every time the list of TIME effects, or one of its effects, changes.
+	 */
+	protected int timeEffectsVersion;
+
 	/**
 	 * List of types that can trigger an EOS effect.
 	 */
@@ -103,9 +108,9 @@ public abstract class Game {
 
 	/**
 	 * Historic of events related to the avatar happened during the game. The
-	 * entries are ordered asc. by game step.
+	 * entries are ordered asc. by game step. Shared with the forward model copies.
 	 */
-	protected TreeSet<Event> historicEvents;
+	protected EventLog historicEvents;
 
 	/**
 	 * For each entry, int identifier of sprite type, a list with all the itypes
@@ -120,9 +125,21 @@ public abstract class Game {
 	protected ArrayList<Pair<Integer, Long>>[] shieldedEffects;
 
 	/**
-	 * Arraylist to hold collisions between objects in every frame
+	 * Broad phase for the pairwise collisions. Created when first needed.
+	 */
+	private CollisionGrid collisionGrid;
+
+	/**
+	 * Lists reused by the pairwise collisions: sprites of the two types of an
+	 * effect, and sprites colliding with the current one.
 	 */
-	protected Bucket[] bucketList;
+	private ArrayList<VGDLSprite> collisionFirst, collisionSecond, collisionHits;
+
+	/**
+	 * Minimum number of sprite pairs of an effect to use the collision grid
+	 * instead of checking all pairs.
+	 */
+	private static final int COLLISION_GRID_MIN_PAIRS = 256;
 
 	/**
 	 * Mapping between characters in the level and the entities they represent.
@@ -137,7 +154,7 @@ public abstract class Game {
 	/**
 	 * List of sprites killed in the game.
 	 */
-	public ArrayList<VGDLSprite> kill_list;
+	public KillList kill_list;
 
 	/**
 	 * Limit number of each resource type
@@ -194,6 +211,16 @@ public abstract class Game {
 	 */
 	protected boolean isEnded;
 
+	/**
+	 * Indicates if the game is being run in turbo mode (see CompetitionParameters.TURBO).
+	 */
+	protected boolean turbo;
+
+	/**
+	 * Game ticks per second of the last game run in turbo mode.
+	 */
+	protected double ticksPerSecond;
+
 	/**
 	 * State observation for this game.
 	 */
@@ -264,7 +291,7 @@ public abstract class Game {
 		definedEOSEffects = new ArrayList<Integer>();
 		charMapping = new HashMap<Character, ArrayList<String>>();
 		terminations = new ArrayList<Termination>();
-		historicEvents = new TreeSet<Event>();
+		historicEvents = new EventLog();
 		timeEffects = new TreeSet<TimeEffect>();
 
 		// Game attributes:
@@ -389,7 +416,6 @@ public abstract class Game {
 		collisionEffects = new ArrayList[classConst.length][classConst.length];
 		eosEffects = new ArrayList[classConst.length];
 		iSubTypes = new ArrayList[classConst.length];
-		bucketList = new Bucket[classConst.length];
 		resources_limits = new int[classConst.length];
 		resources_colors = new Color[classConst.length];
 
@@ -400,7 +426,6 @@ public abstract class Game {
 			shieldedEffects[j] = new ArrayList<>();
 			eosEffects[j] = new ArrayList<Effect>();
 			timeEffects = new TreeSet<TimeEffect>();
-			bucketList[j] = new Bucket();
 
 			// Declare the extended types list of this sprite type.
 			iSubTypes[j] = (ArrayList<Integer>) ((SpriteContent) classConst[j]).subtypes.clone();
@@ -746,9 +771,6 @@ public abstract class Game {
 		if (kill_list != null) {
 			kill_list.clear();
 		}
-		for (int j = 0; j < spriteGroups.length; ++j) {
-			bucketList[j].clear();
-		}
 
 		for (int i = 0; i < templateSprites.length; ++i) {
 			templateSprites[i] = null;
@@ -868,11 +890,17 @@ public abstract class Game {
 		// Prepare some structures and references for this game.
 		prepareGame(players, randomSeed, -1);
 
+		turbo = CompetitionParameters.TURBO;
+		long start = System.nanoTime();
+
 		// Play until the game is ended
 		while (!isEnded) {
 			this.gameCycle(); // Execute a game cycle.
 		}
 
+		if (turbo)
+			ticksPerSecond = (gameTick + 1) / ((System.nanoTime() - start) / 1e9);
+
 		// Update the forward model for the game state sent to the controller.
 		fwdModel.update(this);
 
@@ -1388,13 +1416,10 @@ public abstract class Game {
 	 */
 	@SuppressWarnings("unchecked")
 	protected void eventHandling() {
-		// Array to indicate that the sprite type has no representative in
-		// collisions.
-		boolean noSprites[] = new boolean[spriteGroups.length];
-
 		// First, check the effects that are triggered in a timely manner.
 		while (timeEffects.size() > 0 && timeEffects.first().nextExecution <= gameTick) {
 			TimeEffect ef = timeEffects.pollFirst();
+			timeEffectsVersion++;
 			if (ef.enabled) {
 				int intId = ef.itype;
 				boolean exec = false;
@@ -1488,26 +1513,54 @@ public abstract class Game {
 							continue;
 					}
 
-					ArrayList<VGDLSprite> firstx = new ArrayList<VGDLSprite>();
-					ArrayList<VGDLSprite> secondx = new ArrayList<VGDLSprite>();
+					// The lists are reused: effects only read them.
+					if (collisionFirst == null) {
+						collisionFirst = new ArrayList<VGDLSprite>();
+						collisionSecond = new ArrayList<VGDLSprite>();
+						collisionHits = new ArrayList<VGDLSprite>();
+					}
+					ArrayList<VGDLSprite> firstx = collisionFirst;
+					ArrayList<VGDLSprite> secondx = collisionSecond;
+					firstx.clear();
+					secondx.clear();
 
 					ArrayList<Integer> allTypes1 = iSubTypes[p.first];
-					for (int i : allTypes1) {
-						firstx.addAll(getSprites(i));
+					for (int i = 0; i < allTypes1.size(); ++i) {
+						addSpritesTo(allTypes1.get(i), firstx);
 					}
 					ArrayList<Integer> allTypes2 = iSubTypes[p.second];
-					for (int j : allTypes2) {
-						secondx.addAll(getSprites(j));
+					for (int j = 0; j < allTypes2.size(); ++j) {
+						addSpritesTo(allTypes2.get(j), secondx);
 					}
 
-					ArrayList<VGDLSprite> new_secondx = new ArrayList<VGDLSprite>();
+					// Use the collision grid when there are many pairs to check.
+					CollisionGrid grid = null;
+					if (firstx.size() * secondx.size() >= COLLISION_GRID_MIN_PAIRS) {
+						grid = getCollisionGrid();
+						grid.build(secondx);
+					}
 
-					for (VGDLSprite s1 : firstx) {
-						new_secondx = new ArrayList<VGDLSprite>();
+					ArrayList<VGDLSprite> new_secondx = collisionHits;
 
-						for (VGDLSprite s2 : secondx) {
-							if ((s1 != s2 && s1.intersects(s2))) {
-								new_secondx.add(s2);
+					for (int k = 0; k < firstx.size(); ++k) {
+						VGDLSprite s1 = firstx.get(k);
+						new_secondx.clear();
+
+						if (grid == null) {
+							for (int c = 0; c < secondx.size(); c++) {
+								VGDLSprite s2 = secondx.get(c);
+								if ((s1 != s2 && s1.intersects(s2))) {
+									new_secondx.add(s2);
+								}
+							}
+						} else {
+							// Candidates come in the order of secondx.
+							grid.query(s1.rect);
+							for (int c = 0; c < grid.getNumCandidates(); c++) {
+								VGDLSprite s2 = grid.getCandidate(c);
+								if ((s1 != s2 && s1.intersects(s2))) {
+									new_secondx.add(s2);
+								}
 							}
 						}
 
@@ -1522,6 +1575,11 @@ public abstract class Game {
 									}
 								}
 							}
+
+							// Effects may have moved sprites of secondx.
+							if (grid != null) {
+								grid.refresh();
+							}
 						}
 					}
 				}
@@ -1530,6 +1588,36 @@ public abstract class Game {
 
 	}
 
+	/**
+	 * Adds the sprites of a type at the end of a list, without the copy of
+	 * ArrayList.addAll.
+	 *
+	 * @param itype
+	 *            type of the sprites.
+	 * @param list
+	 *            list to add them to.
+	 */
+	private void addSpritesTo(int itype, ArrayList<VGDLSprite> list) {
+		ArrayList<VGDLSprite> sprites = getSprites(itype);
+		int n = sprites.size();
+		list.ensureCapacity(list.size() + n);
+		for (int i = 0; i < n; i++) {
+			list.add(sprites.get(i));
+		}
+	}
+
+	/**
+	 * Gets the collision grid, creating it again if the screen or the block size changed.
+	 *
+	 * @return the collision grid.
+	 */
+	private CollisionGrid getCollisionGrid() {
+		if (collisionGrid == null || !collisionGrid.fits(screenSize.width, screenSize.height, block_size)) {
+			collisionGrid = new CollisionGrid(screenSize.width, screenSize.height, block_size);
+		}
+		return collisionGrid;
+	}
+
 
 	private void executeEffectBatch(Effect ef, VGDLSprite s1, ArrayList<VGDLSprite> s2list) {
 		// There is a collision. Apply the effect.
@@ -1600,20 +1688,16 @@ public abstract class Game {
 
 	private void addEvent(VGDLSprite s1, VGDLSprite s2) {
 		if (s1.is_avatar)
-			historicEvents.add(
-					new Event(gameTick, false, s1.getType(), s2.getType(), s1.spriteID, s2.spriteID, s1.getPosition()));
+			historicEvents.add(gameTick, false, s1.getType(), s2.getType(), s1.spriteID, s2.spriteID, s1.rect.x, s1.rect.y);
 
 		else if (s1.is_from_avatar)
-			historicEvents.add(
-					new Event(gameTick, true, s1.getType(), s2.getType(), s1.spriteID, s2.spriteID, s1.getPosition()));
+			historicEvents.add(gameTick, true, s1.getType(), s2.getType(), s1.spriteID, s2.spriteID, s1.rect.x, s1.rect.y);
 
 		else if (s2.is_avatar)
-			historicEvents.add(
-					new Event(gameTick, false, s2.getType(), s1.getType(), s2.spriteID, s1.spriteID, s2.getPosition()));
+			historicEvents.add(gameTick, false, s2.getType(), s1.getType(), s2.spriteID, s1.spriteID, s2.rect.x, s2.rect.y);
 
 		else if (s2.is_from_avatar)
-			historicEvents.add(
-					new Event(gameTick, true, s2.getType(), s1.getType(), s2.spriteID, s1.spriteID, s2.getPosition()));
+			historicEvents.add(gameTick, true, s2.getType(), s1.getType(), s2.spriteID, s1.spriteID, s2.rect.x, s2.rect.y);
 	}
 
 	/**
@@ -1658,8 +1742,7 @@ public abstract class Game {
 	}
 
 	/**
-	 * Deletes all the sprites killed in the previous step. Also, clears the
-	 * array of collisions from the last step.
+	 * Deletes all the sprites killed in the previous step.
 	 *
 	 * @param fm
 	 *            Forward model where we are cleaning sprites.
@@ -1683,10 +1766,6 @@ public abstract class Game {
 		}
 		kill_list.clear();
 
-		for (int j = 0; j < spriteGroups.length; ++j) {
-			bucketList[j].clear();
-		}
-
 		resetShieldEffects();
 	}
 
@@ -1951,6 +2030,7 @@ public abstract class Game {
 	 */
 	public void addTimeEffect(TimeEffect ef) {
 		timeEffects.add(ef);
+		timeEffectsVersion++;
 	}
 
 	/**
@@ -2130,6 +2210,7 @@ public abstract class Game {
 		}
 
 		this.timeEffects.clear();
+		timeEffectsVersion++;
 	}
 
 	/**
@@ -2168,6 +2249,24 @@ public abstract class Game {
 		return gameTick;
 	}
 
+	/**
+	 * Indicates if this game is being run in turbo mode.
+	 *
+	 * @return true if the game is run by runGame with CompetitionParameters.TURBO.
+	 */
+	public boolean isTurbo() {
+		return turbo;
+	}
+
+	/**
+	 * Returns the game ticks per second of the last game run in turbo mode.
+	 *
+	 * @return ticks per second, 0 if no game was run in turbo mode.
+	 */
+	public double getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
 	/**
 	 * Returns the winner of this game. A value from Types.WINNER.
 	 *
@@ -2257,57 +2356,4 @@ public abstract class Game {
 		this.parameters = parameters;
 	}
 
-	/**
-	 * Class for helping collision detection.
-	 */
-	protected class Bucket {
-		ArrayList<VGDLSprite> allSprites;
-		HashMap<Integer, ArrayList<VGDLSprite>> spriteLists;
-		int totalNumSprites;
-
-		public Bucket() {
-			allSprites = new ArrayList<VGDLSprite>();
-			spriteLists = new HashMap<Integer, ArrayList<VGDLSprite>>();
-			totalNumSprites = 0;
-		}
-
-		public void clear() {
-			allSprites.clear();
-			spriteLists.clear();
-			totalNumSprites = 0;
-		}
-
-		public void add(VGDLSprite sp) {
-			int bucket = sp.bucket;
-			ArrayList<VGDLSprite> sprites = spriteLists.get(bucket);
-			if (sprites == null) {
-				sprites = new ArrayList<VGDLSprite>();
-				spriteLists.put(bucket, sprites);
-			}
-			sprites.add(sp);
-			allSprites.add(sp);
-			totalNumSprites++;
-		}
-
-		public int size() {
-			return totalNumSprites;
-		}
-
-		public int size(int bucket) {
-			ArrayList<VGDLSprite> sprites = spriteLists.get(bucket);
-			if (sprites == null)
-				return 0;
-			return sprites.size();
-		}
-
-		public ArrayList<VGDLSprite> getAllSprites() {
-			return allSprites;
-		}
-
-		public HashMap<Integer, ArrayList<VGDLSprite>> getSpriteList() {
-			return spriteLists;
-		}
-
-	}
-
 }
@@ -0,0 +1,83 @@
+package core.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+import core.vgdl.VGDLSprite;
+
+/**
+ * List of sprites killed in the current game step. Sprites are kept in the
+ * order they were killed (including repeated kills, as the list always did),
+ * and an identity set gives O(1) membership checks for the collision loops.
+ */
+public class KillList implements Iterable<VGDLSprite>
+{
+    private ArrayList<VGDLSprite> sprites;
+    private Set<VGDLSprite> members;
+
+    public KillList()
+    {
+        sprites = new ArrayList<VGDLSprite>();
+        members = Collections.newSetFromMap(new IdentityHashMap<VGDLSprite, Boolean>());
+    }
+
+    /**
+     * Adds a killed sprite at the end of the list.
+     * @param sprite sprite killed.
+     * @return always true.
+     */
+    public boolean add(VGDLSprite sprite)
+    {
+        sprites.add(sprite);
+        members.add(sprite);
+        return true;
+    }
+
+    /**
+     * Checks if a sprite has been killed in this step.
+     * @param sprite sprite to check.
+     * @return true if the sprite is in the list.
+     */
+    public boolean contains(VGDLSprite sprite)
+    {
+        return members.contains(sprite);
+    }
+
+    /**
+     * Removes all the sprites. Only the members are removed from the set, so
+     * the cost does not depend on the largest size the list ever had.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < sprites.size(); ++i)
+            members.remove(sprites.get(i));
+        sprites.clear();
+    }
+
+    public int size()
+    {
+        return sprites.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return sprites.isEmpty();
+    }
+
+    public VGDLSprite get(int index)
+    {
+        return sprites.get(index);
+    }
+
+    /**
+     * Iterates the sprites in the order they were killed.
+     */
+    @Override
+    public Iterator<VGDLSprite> iterator()
+    {
+        return Collections.unmodifiableList(sprites).iterator();
+    }
+}
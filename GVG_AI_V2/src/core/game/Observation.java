@@ -39,6 +39,12 @@ public class Observation implements Comparable<Observation>
      */
     public double sqDist;
 
+    /**
+     * First slot of this observation in the ObservationGrid of its model, -1 if none.
+     * It is internal to the engine, so it is not serialized for the learning track.
+     */
+    transient int gridSlot = -1;
+
     public Observation() {
         // used for learning track
         category = -1;
@@ -0,0 +1,348 @@
+package core.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Grid of the observations of a forward model, in cells of block_size pixels.
+ *
+ * Each cell is a doubly linked list of slots stored in primitive arrays, so adding
+ * or removing an observation is O(1) and does not allocate once the arrays have grown.
+ * An observation can be in up to four cells (when its sprite is between cells); its
+ * slots are chained from Observation.gridSlot, so it is removed without its position.
+ * The observations of a cell are kept in the order they were added.
+ *
+ * Agents can read the grid with the accessors of this class (first observation of a
+ * cell, iteration over the slots of a cell, cells with a sprite type), which do not
+ * allocate. getLists() builds the ArrayList&lt;Observation&gt;[][] view returned by
+ * StateObservation.getObservationGrid(), and only rebuilds the cells that changed.
+ */
+public class ObservationGrid
+{
+    private int width;
+    private int height;
+
+    //First and last slot of each cell (-1 if empty), and number of observations.
+    private int[] cellHead;
+    private int[] cellTail;
+    private int[] cellSize;
+
+    //Slots: observation, cell, links in the cell, and next slot of the same observation.
+    //Free slots are linked through slotNext.
+    private Observation[] slotObs;
+    private int[] slotCell;
+    private int[] slotPrev;
+    private int[] slotNext;
+    private int[] slotSibling;
+    private int numSlots;
+    private int freeSlot;
+
+    //ArrayList view, and cells that changed since it was built.
+    private ArrayList<Observation>[][] lists;
+    private boolean[] stale;
+    private int[] staleCells;
+    private int numStale;
+
+    /**
+     * Creates an empty grid.
+     * @param width number of columns.
+     * @param height number of rows.
+     */
+    public ObservationGrid(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+        cellHead = new int[width * height];
+        cellTail = new int[width * height];
+        cellSize = new int[width * height];
+        Arrays.fill(cellHead, -1);
+        Arrays.fill(cellTail, -1);
+
+        int capacity = Math.max(16, width * height);
+        slotObs = new Observation[capacity];
+        slotCell = new int[capacity];
+        slotPrev = new int[capacity];
+        slotNext = new int[capacity];
+        slotSibling = new int[capacity];
+        freeSlot = -1;
+    }
+
+    /**
+     * @return number of columns of the grid.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * @return number of rows of the grid.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Checks if this grid has the given size.
+     */
+    public boolean fits(int width, int height)
+    {
+        return this.width == width && this.height == height;
+    }
+
+    /**
+     * Gets the number of observations in a cell.
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return number of observations, 0 if the cell is out of the grid.
+     */
+    public int getSize(int x, int y)
+    {
+        return inside(x, y) ? cellSize[x * height + y] : 0;
+    }
+
+    /**
+     * Gets the first observation (oldest one) of a cell.
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return the observation, null if the cell is empty or out of the grid.
+     */
+    public Observation getFirst(int x, int y)
+    {
+        int slot = getFirstSlot(x, y);
+        return slot == -1 ? null : slotObs[slot];
+    }
+
+    /**
+     * Gets the first slot of a cell, to iterate its observations:
+     * for(int s = grid.getFirstSlot(x, y); s != -1; s = grid.getNextSlot(s)) grid.getObservation(s)...
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return the slot, -1 if the cell is empty or out of the grid.
+     */
+    public int getFirstSlot(int x, int y)
+    {
+        return inside(x, y) ? cellHead[x * height + y] : -1;
+    }
+
+    /**
+     * @param slot a slot of a cell.
+     * @return the next slot of the same cell, -1 if it is the last one.
+     */
+    public int getNextSlot(int slot)
+    {
+        return slotNext[slot];
+    }
+
+    /**
+     * @param slot a slot of a cell.
+     * @return the observation in the slot.
+     */
+    public Observation getObservation(int slot)
+    {
+        return slotObs[slot];
+    }
+
+    /**
+     * Checks if there is an observation of a sprite type in a cell.
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @param itype sprite type.
+     * @return true if the cell has an observation of that type.
+     */
+    public boolean contains(int x, int y, int itype)
+    {
+        for(int s = getFirstSlot(x, y); s != -1; s = slotNext[s])
+            if(slotObs[s].itype == itype)
+                return true;
+        return false;
+    }
+
+    /**
+     * Finds the cells that have an observation of a sprite type, column by column.
+     * Cells are returned as x * getHeight() + y.
+     * @param itype sprite type.
+     * @param cells array to store the cells. Only cells.length cells are stored.
+     * @return number of cells stored.
+     */
+    public int getCellsWithType(int itype, int[] cells)
+    {
+        int n = 0;
+        for(int cell = 0; cell < cellHead.length && n < cells.length; ++cell)
+        {
+            for(int s = cellHead[cell]; s != -1; s = slotNext[s])
+            {
+                if(slotObs[s].itype == itype)
+                {
+                    cells[n++] = cell;
+                    break;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Gets the grid as lists of observations. The arrays and lists are owned by this
+     * grid and are updated by later calls: they must not be modified.
+     * @return the observations of each cell, indexed [x][y].
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ArrayList<Observation>[][] getLists()
+    {
+        if(lists == null)
+        {
+            lists = new ArrayList[width][height];
+            stale = new boolean[width * height];
+            staleCells = new int[16];
+            for(int x = 0; x < width; ++x)
+            {
+                for(int y = 0; y < height; ++y)
+                {
+                    lists[x][y] = new ArrayList<Observation>();
+                    fillList(x * height + y);
+                }
+            }
+            return lists;
+        }
+
+        for(int i = 0; i < numStale; ++i)
+        {
+            int cell = staleCells[i];
+            stale[cell] = false;
+            fillList(cell);
+        }
+        numStale = 0;
+        return lists;
+    }
+
+    /**
+     * Adds an observation at the end of a cell.
+     * @param obs observation to add.
+     * @param x column of the cell (must be inside the grid).
+     * @param y row of the cell (must be inside the grid).
+     */
+    void add(Observation obs, int x, int y)
+    {
+        int cell = x * height + y;
+        int slot = newSlot();
+        slotObs[slot] = obs;
+        slotCell[slot] = cell;
+        slotPrev[slot] = cellTail[cell];
+        slotNext[slot] = -1;
+        if(cellTail[cell] == -1)
+            cellHead[cell] = slot;
+        else
+            slotNext[cellTail[cell]] = slot;
+        cellTail[cell] = slot;
+        cellSize[cell]++;
+
+        slotSibling[slot] = obs.gridSlot;
+        obs.gridSlot = slot;
+        markStale(cell);
+    }
+
+    /**
+     * Removes an observation from all the cells it is in.
+     * @param obs observation to remove.
+     */
+    void remove(Observation obs)
+    {
+        int slot = obs.gridSlot;
+        while(slot != -1)
+        {
+            int cell = slotCell[slot];
+            int prev = slotPrev[slot], next = slotNext[slot];
+            if(prev == -1)
+                cellHead[cell] = next;
+            else
+                slotNext[prev] = next;
+            if(next == -1)
+                cellTail[cell] = prev;
+            else
+                slotPrev[next] = prev;
+            cellSize[cell]--;
+            markStale(cell);
+
+            int sibling = slotSibling[slot];
+            slotObs[slot] = null;
+            slotNext[slot] = freeSlot;
+            freeSlot = slot;
+            slot = sibling;
+        }
+        obs.gridSlot = -1;
+    }
+
+    /**
+     * Removes all the observations.
+     */
+    void clear()
+    {
+        for(int s = 0; s < numSlots; ++s)
+        {
+            if(slotObs[s] != null)
+            {
+                slotObs[s].gridSlot = -1;
+                slotObs[s] = null;
+            }
+        }
+        numSlots = 0;
+        freeSlot = -1;
+        Arrays.fill(cellHead, -1);
+        Arrays.fill(cellTail, -1);
+        Arrays.fill(cellSize, 0);
+
+        if(lists != null)
+        {
+            for(int x = 0; x < width; ++x)
+                for(int y = 0; y < height; ++y)
+                    lists[x][y].clear();
+            Arrays.fill(stale, false);
+            numStale = 0;
+        }
+    }
+
+    private int newSlot()
+    {
+        if(freeSlot != -1)
+        {
+            int slot = freeSlot;
+            freeSlot = slotNext[slot];
+            return slot;
+        }
+        if(numSlots == slotObs.length)
+        {
+            int capacity = 2 * slotObs.length;
+            slotObs = Arrays.copyOf(slotObs, capacity);
+            slotCell = Arrays.copyOf(slotCell, capacity);
+            slotPrev = Arrays.copyOf(slotPrev, capacity);
+            slotNext = Arrays.copyOf(slotNext, capacity);
+            slotSibling = Arrays.copyOf(slotSibling, capacity);
+        }
+        return numSlots++;
+    }
+
+    private void markStale(int cell)
+    {
+        if(lists == null || stale[cell])
+            return;
+        stale[cell] = true;
+        if(numStale == staleCells.length)
+            staleCells = Arrays.copyOf(staleCells, 2 * staleCells.length);
+        staleCells[numStale++] = cell;
+    }
+
+    private void fillList(int cell)
+    {
+        ArrayList<Observation> list = lists[cell / height][cell % height];
+        list.clear();
+        for(int s = cellHead[cell]; s != -1; s = slotNext[s])
+            list.add(slotObs[s]);
+    }
+
+    private boolean inside(int x, int y)
+    {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+}
@@ -5,6 +5,7 @@ import tools.com.google.gson.Gson;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.ByteArrayOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -40,6 +41,119 @@ public class SerializableImage {
         return output.toByteArray();
     }
 
+    /**
+     * Encodes an image for a learning client, in memory.
+     * @param image image to encode.
+     * @param format PNG, or raw RGB or GRAY pixels. Transparent pixels are black.
+     * @param downsample side of the blocks of pixels averaged into one (1 keeps the size).
+     * @return the encoded image, of getWidth(image, downsample) x getHeight(image, downsample) pixels.
+     */
+    public static byte[] encode(BufferedImage image, Types.LEARNING_IMAGE_FORMAT format, int downsample) throws IOException
+    {
+        if(format == Types.LEARNING_IMAGE_FORMAT.PNG && downsample <= 1)
+            return imageToByteArray(image);
+
+        int w = getWidth(image, downsample);
+        int h = getHeight(image, downsample);
+        int[] argb = getPixels(image);
+        if(downsample > 1)
+            argb = downsample(argb, image.getWidth(), image.getHeight(), downsample);
+
+        if(format == Types.LEARNING_IMAGE_FORMAT.PNG)
+        {
+            BufferedImage small = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            small.setRGB(0, 0, w, h, argb, 0, w);
+            return imageToByteArray(small);
+        }
+
+        boolean gray = (format == Types.LEARNING_IMAGE_FORMAT.GRAY);
+        byte[] bytes = new byte[w * h * (gray ? 1 : 3)];
+        int b = 0;
+        for(int i = 0; i < w * h; ++i)
+        {
+            int p = argb[i];
+            int a = p >>> 24;
+            int red = ((p >> 16) & 0xFF) * a / 255;
+            int green = ((p >> 8) & 0xFF) * a / 255;
+            int blue = (p & 0xFF) * a / 255;
+            if(gray)
+            {
+                bytes[b++] = (byte) ((299 * red + 587 * green + 114 * blue) / 1000);
+            }else
+            {
+                bytes[b++] = (byte) red;
+                bytes[b++] = (byte) green;
+                bytes[b++] = (byte) blue;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return width of the image once downsampled.
+     */
+    public static int getWidth(BufferedImage image, int downsample)
+    {
+        return Math.max(1, image.getWidth() / Math.max(1, downsample));
+    }
+
+    /**
+     * @return height of the image once downsampled.
+     */
+    public static int getHeight(BufferedImage image, int downsample)
+    {
+        return Math.max(1, image.getHeight() / Math.max(1, downsample));
+    }
+
+    /**
+     * Gets the ARGB pixels of an image, row by row. The raster of ARGB images is
+     * read directly, without a copy: the array must not be modified.
+     */
+    private static int[] getPixels(BufferedImage image)
+    {
+        int w = image.getWidth(), h = image.getHeight();
+        if(image.getType() == BufferedImage.TYPE_INT_ARGB && image.getRaster().getDataBuffer() instanceof DataBufferInt)
+        {
+            int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            if(data.length == w * h)
+                return data;
+        }
+        return image.getRGB(0, 0, w, h, null, 0, w);
+    }
+
+    /**
+     * Averages blocks of side x side pixels into one. Pixels that do not fill a
+     * block at the right and bottom borders are left out.
+     */
+    private static int[] downsample(int[] argb, int srcW, int srcH, int side)
+    {
+        int w = Math.max(1, srcW / side), h = Math.max(1, srcH / side);
+        int bw = Math.min(side, srcW), bh = Math.min(side, srcH);
+        int n = bw * bh;
+        int[] small = new int[w * h];
+
+        for(int y = 0; y < h; ++y)
+        {
+            for(int x = 0; x < w; ++x)
+            {
+                int a = 0, r = 0, g = 0, b = 0;
+                for(int dy = 0; dy < bh; ++dy)
+                {
+                    int i = (y * bh + dy) * srcW + x * bw;
+                    for(int dx = 0; dx < bw; ++dx, ++i)
+                    {
+                        int p = argb[i];
+                        a += p >>> 24;
+                        r += (p >> 16) & 0xFF;
+                        g += (p >> 8) & 0xFF;
+                        b += p & 0xFF;
+                    }
+                }
+                small[y * w + x] = ((a / n) << 24) | ((r / n) << 16) | ((g / n) << 8) | (b / n);
+            }
+        }
+        return small;
+    }
 
     /***
      * This method serializes this class into a cohesive json object, using GSon,
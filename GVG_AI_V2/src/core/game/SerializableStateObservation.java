@@ -6,6 +6,7 @@ import ontology.Types;
 import tools.ElapsedCpuTimer;
 
 import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
@@ -28,6 +29,9 @@ public class SerializableStateObservation {
 
     // State Observation variables
     public byte[] imageArray;
+    public Types.LEARNING_IMAGE_FORMAT imageFormat;
+    public int imageWidth;
+    public int imageHeight;
     public boolean isValidation;
     public float gameScore;
     public int gameTick;
@@ -73,21 +77,33 @@ public class SerializableStateObservation {
     public int fromAvatarSpritesPositionsMaxRow;
 
     public SerializableStateObservation(StateObservation s, Boolean both){
+        this(s, both, null);
+    }
+
+    /**
+     * Creates the observation with a screenshot rendered in memory, encoded as
+     * CompetitionParameters.LEARNING_IMAGE_FORMAT.
+     * @param s state of the game.
+     * @param both true to send the state data as well as the image.
+     * @param image screenshot of the game. If null, it is read from CompetitionParameters.SCREENSHOT_FILENAME.
+     */
+    public SerializableStateObservation(StateObservation s, Boolean both, BufferedImage image){
         try {
-            if (!both) {
-                // Fill in the persistent variables (Score, tick)
-                buildGameData(s);
-                if(phase != Phase.START) {
-                    // Create the image bytearray
-                    imageArray = imageToByteArray();
-                }
-            } else {
-                // Fill in the persistent variables (Score, tick)
-                buildGameData(s);
-                if(phase != Phase.START) {
-                    // Create the image bytearray
+            // Fill in the persistent variables (Score, tick)
+            buildGameData(s);
+            if(phase != Phase.START) {
+                // Create the image bytearray
+                if(image != null) {
+                    int downsample = Math.max(1, CompetitionParameters.LEARNING_IMAGE_DOWNSAMPLE);
+                    imageFormat = CompetitionParameters.LEARNING_IMAGE_FORMAT;
+                    imageWidth = SerializableImage.getWidth(image, downsample);
+                    imageHeight = SerializableImage.getHeight(image, downsample);
+                    imageArray = SerializableImage.encode(image, imageFormat, downsample);
+                } else if(!CompetitionParameters.TURBO) {
                     imageArray = imageToByteArray();
                 }
+            }
+            if (both) {
                 // Fill in the simple data variables
                 buildDataVariables(s);
 
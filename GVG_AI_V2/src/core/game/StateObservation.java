@@ -57,6 +57,19 @@ public class StateObservation {
         return copyObs;
     }
 
+    /**
+     * Copies this state observation into another one, reusing the forward model of the
+     * target (see ForwardModel.copyInto()). The target ends up equivalent to a copy() of
+     * this observation, but it keeps its own random generator.
+     *
+     * @param target state observation to overwrite.
+     */
+    public void copyInto(StateObservation target) {
+        target.playerID = this.playerID;
+        target.currentGameState = this.currentGameState;
+        model.copyInto(target.model);
+    }
+
     /**
      * Advances the state using the action passed as the move of the agent.
      * It updates all entities in the game. It modifies the object 'this' to
@@ -282,6 +295,17 @@ public class StateObservation {
         return model.getObservationGrid();
     }
 
+    /**
+     * Returns the grid of observations of the level, with read only accessors that don't
+     * create lists: first observation of a cell, iteration over the observations of a cell,
+     * cells that contain a sprite type, etc. Cells are the same as in getObservationGrid().
+     * @return the grid of observations
+     */
+    public ObservationGrid getObservationGridCells()
+    {
+        return model.getObservationGridCells();
+    }
+
     /**
      * This method retrieves a list of events that happened so far in the game. In this
      * context, events are collisions of the avatar with other sprites in the game. Additionally,
@@ -466,6 +490,22 @@ public class StateObservation {
         return model.getFromAvatarSpPositions(reference);
     }
 
+    /**
+     * Returns the k observations of a category of sprites nearest to a reference position,
+     * ordered asc. by distance to it. Only the k nearest are ordered, so this is cheaper than
+     * sorting the lists of the methods above when only the nearest sprites are needed.
+     *
+     * @param category  Category of the sprites: Types.TYPE_NPC, Types.TYPE_STATIC,
+     *                  Types.TYPE_MOVABLE, Types.TYPE_RESOURCE, Types.TYPE_PORTAL,
+     *                  Types.TYPE_FROMAVATAR or Types.TYPE_AVATAR.
+     * @param reference Reference position.
+     * @param k         Maximum number of observations.
+     * @return Up to k observations (empty if there are no sprites of that category).
+     */
+    public Observation[] getNearestPositions(int category, Vector2d reference, int k) {
+        return model.getNearestPositions(category, reference, k);
+    }
+
 
     /**
      * Returns key handler available to the player.
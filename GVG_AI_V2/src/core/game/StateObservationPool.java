@@ -0,0 +1,71 @@
+package core.game;
+
+import java.util.ArrayDeque;
+
+/**
+ * Per-thread pool of state observations, for agents that copy states in a loop
+ * (rollouts, evaluation of sequences of actions). copy() takes an observation
+ * released by the same thread, if there is one, and overwrites it with
+ * StateObservation.copyInto(), so the forward model, its collections and its
+ * sprites are reused instead of allocated again.
+ *
+ * An observation must not be used after it is released.
+ */
+public final class StateObservationPool
+{
+    /**
+     * Maximum number of free observations kept per thread.
+     */
+    private static final int MAX_FREE = 32;
+
+    private static final ThreadLocal<ArrayDeque<StateObservation>> FREE =
+            ThreadLocal.withInitial(ArrayDeque::new);
+
+    private StateObservationPool() {}
+
+    /**
+     * Returns a copy of a state observation, reusing a released observation of this
+     * thread when there is one of the same class.
+     * @param so state observation to copy.
+     * @return a copy of so, to be given back with release() when it is not needed.
+     */
+    public static StateObservation copy(StateObservation so)
+    {
+        ArrayDeque<StateObservation> free = FREE.get();
+        StateObservation target = free.pollLast();
+        if(target == null || target.getClass() != so.getClass())
+            return so.copy();
+        so.copyInto(target);
+        return target;
+    }
+
+    /**
+     * Multi player version of copy().
+     * @param so state observation to copy.
+     * @return a copy of so, to be given back with release() when it is not needed.
+     */
+    public static StateObservationMulti copy(StateObservationMulti so)
+    {
+        return (StateObservationMulti) copy((StateObservation) so);
+    }
+
+    /**
+     * Gives back an observation obtained with copy(), so it can be reused by the
+     * next copy of this thread.
+     * @param so state observation no longer used.
+     */
+    public static void release(StateObservation so)
+    {
+        ArrayDeque<StateObservation> free = FREE.get();
+        if(so != null && free.size() < MAX_FREE)
+            free.addLast(so);
+    }
+
+    /**
+     * Removes the free observations of this thread (e.g. when a game ends).
+     */
+    public static void clear()
+    {
+        FREE.get().clear();
+    }
+}
@@ -253,16 +253,6 @@ public abstract class VGDLSprite {
      */
     public boolean is_from_avatar;
 
-    /**
-     * Bucket
-     */
-    public int bucket;
-
-    /**
-     * Bucket remainder.
-     */
-    public boolean bucketSharp;
-
     /**
      * Indicates if the sprite is able to rotate in place.
      */
@@ -393,8 +383,6 @@ public abstract class VGDLSprite {
     public void setRect(Rectangle rectangle)
     {
         rect = new Rectangle(rectangle);
-        bucket = rect.y / rect.height;
-        bucketSharp = (rect.y % rect.height) == 0;
     }
 
     /**
@@ -486,7 +474,11 @@ public abstract class VGDLSprite {
      */
     public void preMovement()
     {
-        lastrect = new Rectangle(rect);
+        //Nothing keeps a reference to lastrect, so it is overwritten instead of replaced.
+        if(lastrect == null)
+            lastrect = new Rectangle(rect);
+        else
+            lastrect.setBounds(rect.x, rect.y, rect.width, rect.height);
         lastmove += 1;
 
         frameRemaining -= 1;
@@ -557,7 +549,6 @@ public abstract class VGDLSprite {
 
         if (cooldown <= lastmove && (Math.abs(orientation.x()) + Math.abs(orientation.y()) != 0)) {
         	rect.translate((int) (orientation.x() * speed), (int) (orientation.y() * speed));
-        	updateBucket();
             lastmove = 0;
             return true;
         }
@@ -575,12 +566,6 @@ public abstract class VGDLSprite {
         return true;
     }
 
-    public void updateBucket()
-    {
-        bucket = rect.y / rect.height;
-        bucketSharp = (rect.y % rect.height) == 0;
-    }
-
     /**
      * Returns the velocity of the sprite, in a Vector2d object.
      * @return the velocity of the sprite
@@ -864,12 +849,6 @@ public abstract class VGDLSprite {
 
         gphx.drawImage(image, r.x, r.y, (int) (w*scaleX), (int) (h*scaleY), null);
 
-        //uncomment this to see lots of numbers around
-        //gphx.setColor(Color.BLACK);
-        //if(bucketSharp)   gphx.drawString("["+bucket+"]",r.x, r.y);
-        //else              gphx.drawString("{"+bucket+"}",r.x, r.y);
-
-
     }
 
     /**
@@ -1123,6 +1102,8 @@ public abstract class VGDLSprite {
 
     /**
      * Copies the attributes of this object to the one passed as parameter.
+     * If the target already has rectangles and collections (it is a sprite being
+     * reused, see ForwardModel.copyInto()), these are overwritten instead of replaced.
      * @param toSprite the sprite to copy to.
      */
     public void copyTo(VGDLSprite toSprite)
@@ -1144,9 +1125,15 @@ public abstract class VGDLSprite {
         toSprite.physics = this.physics; //Object reference, but should be ok.
         toSprite.shrinkfactor = this.shrinkfactor;
         toSprite.is_oriented = this.is_oriented;
-        toSprite.orientation = new Direction(orientation.x(), orientation.y());
-        toSprite.rect = new Rectangle(this.rect.x, this.rect.y, this.rect.width, this.rect.height);
-        toSprite.lastrect =  new Rectangle(this.lastrect.x, this.lastrect.y, this.lastrect.width, this.lastrect.height);
+        toSprite.orientation = this.orientation; //Directions are immutable.
+        if(toSprite.rect == null)
+            toSprite.rect = new Rectangle(this.rect.x, this.rect.y, this.rect.width, this.rect.height);
+        else
+            toSprite.rect.setBounds(this.rect.x, this.rect.y, this.rect.width, this.rect.height);
+        if(toSprite.lastrect == null)
+            toSprite.lastrect =  new Rectangle(this.lastrect.x, this.lastrect.y, this.lastrect.width, this.lastrect.height);
+        else
+            toSprite.lastrect.setBounds(this.lastrect.x, this.lastrect.y, this.lastrect.width, this.lastrect.height);
         toSprite.lastmove = this.lastmove;
         toSprite.jump_strength = this.jump_strength;
         toSprite.singleton = this.singleton;
@@ -1159,8 +1146,6 @@ public abstract class VGDLSprite {
         toSprite.images = this.images;
         toSprite.spriteID = this.spriteID;
         toSprite.is_from_avatar = this.is_from_avatar;
-        toSprite.bucket = this.bucket;
-        toSprite.bucketSharp = this.bucketSharp;
         toSprite.invisible = this.invisible;
         toSprite.autotiling = this.autotiling;
         toSprite.randomtiling = this.randomtiling;
@@ -1183,15 +1168,21 @@ public abstract class VGDLSprite {
         toSprite.img = this.img;
         toSprite.orientedImg = this.orientedImg;
 
-        toSprite.itypes = new ArrayList<Integer>();
-        for(Integer it : this.itypes)
-            toSprite.itypes.add(it);
+        if(toSprite.itypes == null)
+            toSprite.itypes = new ArrayList<Integer>(this.itypes);
+        else
+        {
+            toSprite.itypes.clear();
+            for(int i = 0; i < this.itypes.size(); ++i)
+                toSprite.itypes.add(this.itypes.get(i));
+        }
 
-        toSprite.resources = new TreeMap<Integer, Integer>();
-        Set<Map.Entry<Integer, Integer>> entries = this.resources.entrySet();
-        for(Map.Entry<Integer, Integer> entry : entries)
+        if(toSprite.resources == null)
+            toSprite.resources = new TreeMap<Integer, Integer>(this.resources);
+        else
         {
-            toSprite.resources.put(entry.getKey(), entry.getValue());
+            toSprite.resources.clear();
+            toSprite.resources.putAll(this.resources);
         }
 
     }
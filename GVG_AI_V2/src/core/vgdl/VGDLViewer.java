@@ -45,6 +45,11 @@ public class VGDLViewer extends JComponent
 
     public boolean justImage = false;
 
+    /**
+     * Screenshot for learning players, rendered in memory on every paint.
+     */
+    private BufferedImage frame;
+
     /**
      * Creates the viewer for the game.
      * @param game game to be displayed
@@ -59,7 +64,7 @@ public class VGDLViewer extends JComponent
             Types.LEARNING_SSO_TYPE ssoType = learningPlayer.getLearningSsoType();
             if (ssoType == Types.LEARNING_SSO_TYPE.IMAGE ||
                 ssoType == Types.LEARNING_SSO_TYPE.BOTH) {
-                saveImage(CompetitionParameters.SCREENSHOT_FILENAME);
+                learningPlayer.setFrame(renderFrame());
             }
         }
     }
@@ -120,7 +125,7 @@ public class VGDLViewer extends JComponent
 
             if (ssoType == Types.LEARNING_SSO_TYPE.IMAGE ||
                 ssoType == Types.LEARNING_SSO_TYPE.BOTH) {
-                saveImage(CompetitionParameters.SCREENSHOT_FILENAME);
+                learningPlayer.setFrame(renderFrame());
             }
         }
     }
@@ -133,6 +138,25 @@ public class VGDLViewer extends JComponent
         return size;
     }
 
+    /**
+     * Paints the game on an image kept in memory. The same image is used
+     * by every call.
+     * @return the image.
+     */
+    public BufferedImage renderFrame() {
+        int width = (int) size.getWidth(), height = (int) size.getHeight();
+        if (frame == null || frame.getWidth() != width || frame.getHeight() != height)
+            frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D graphics = frame.createGraphics();
+        graphics.setComposite(AlphaComposite.Clear);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setComposite(AlphaComposite.SrcOver);
+        paintWithGraphics(graphics);
+        graphics.dispose();
+        return frame;
+    }
+
     public void saveImage(String fileName)  {
         try {
             BufferedImage bi = new BufferedImage( (int) size.getWidth(), (int) size.getHeight(), BufferedImage.TYPE_INT_ARGB);
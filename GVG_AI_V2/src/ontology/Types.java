@@ -200,6 +200,16 @@ public class Types {
         BOTH
     }
 
+    /**
+     * Encoding of the images sent to learning clients: a PNG file, or raw pixels
+     * row by row from the top left corner (RGB: 3 bytes per pixel, GRAY: 1 byte per pixel).
+     */
+    public static enum LEARNING_IMAGE_FORMAT {
+        PNG,
+        RGB,
+        GRAY
+    }
+
     public static final int SCORE_DISQ = -1000;
 
     public static final Color GREEN = new Color(0, 200, 0);
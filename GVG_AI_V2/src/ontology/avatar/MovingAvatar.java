@@ -125,21 +125,23 @@ public class MovingAvatar extends VGDLSprite {
      * @param game
      */
     protected void requestPlayerInput(Game game) {
-        ElapsedCpuTimer ect = new ElapsedCpuTimer();
+        //In turbo mode the controller gets a wall time timer, and it is not checked.
+        boolean turbo = game.isTurbo();
+        ElapsedCpuTimer ect = new ElapsedCpuTimer(turbo);
         ect.setMaxTimeMillis(CompetitionParameters.ACTION_TIME);
 
         Types.ACTIONS action;
         if (game.no_players > 1) {
-            action = this.player.act(game.getObservationMulti(playerID), ect.copy());
+            action = this.player.act(game.getObservationMulti(playerID), turbo ? ect : ect.copy());
         } else {
-            action = this.player.act(game.getObservation(), ect.copy());
+            action = this.player.act(game.getObservation(), turbo ? ect : ect.copy());
         }
         
         if(action == null){
             action = ACTIONS.ACTION_NIL;
         }
 
-        if (CompetitionParameters.TIME_CONSTRAINED && ect.exceededMaxTime()) {
+        if (!turbo && CompetitionParameters.TIME_CONSTRAINED && ect.exceededMaxTime()) {
             long exceeded = -ect.remainingTimeMillis();
 
             if (ect.elapsedMillis() > CompetitionParameters.ACTION_TIME_DISQ) {
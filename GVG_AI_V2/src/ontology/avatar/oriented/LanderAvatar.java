@@ -22,6 +22,10 @@ public class LanderAvatar extends OrientedAvatar
 
     public double angle_diff = 0.3;
 
+    //Thrust direction for the rotation it was computed for.
+    private Direction facing;
+    private double facingRotation;
+
     public LanderAvatar(){}
 
     public LanderAvatar(Vector2d position, Dimension size, SpriteContent cnt)
@@ -67,11 +71,12 @@ public class LanderAvatar extends OrientedAvatar
     {
     	double angle = this.rotation;
 
-    	if(Utils.processMovementActionKeys(getKeyHandler().getMask(), getPlayerID()) == Types.DLEFT) 
+    	Direction action = Utils.processMovementActionKeys(getKeyHandler().getMask(), getPlayerID());
+    	if(action == Types.DLEFT)
     	{
     		angle -= angle_diff;
     	}
-    	else if (Utils.processMovementActionKeys(getKeyHandler().getMask(), getPlayerID()) == Types.DRIGHT) 
+    	else if (action == Types.DRIGHT)
     	{
     		angle += angle_diff;
     	}
@@ -80,11 +85,14 @@ public class LanderAvatar extends OrientedAvatar
     
     public void move()
     {
-    	Direction facing = new Direction(0,0);
-
     	if (Utils.processMovementActionKeys(getKeyHandler().getMask(), getPlayerID()) == Types.DUP) 
     	{
-    		facing = new Direction(Math.cos(this.rotation), Math.sin(this.rotation));
+    		//The rotation only changes when turning, so the direction is usually the last one.
+    		if(facing == null || facingRotation != this.rotation)
+    		{
+    			facing = new Direction(Math.cos(this.rotation), Math.sin(this.rotation));
+    			facingRotation = this.rotation;
+    		}
     		this.physics.activeMovement(this, facing, speed);
     	}
     }
@@ -5,7 +5,6 @@ import java.awt.Rectangle;
 import core.vgdl.VGDLSprite;
 import ontology.Types;
 import tools.Direction;
-import tools.Vector2d;
 
 /**
  * Created with IntelliJ IDEA.
@@ -36,8 +35,7 @@ public class ContinuousPhysics extends GridPhysics
 
             if(sprite.gravity > 0 && sprite.mass > 0 && !sprite.on_ground)
             {
-            	Direction gravityAction = new Direction(0, sprite.gravity * sprite.mass);
-                this.activeMovement(sprite, gravityAction, 0);
+                this.accelerate(sprite, 0, sprite.gravity * sprite.mass, 0);
             }
             sprite.speed *= (1-sprite.friction);
             return Types.MOVEMENT.MOVE;
@@ -48,36 +46,55 @@ public class ContinuousPhysics extends GridPhysics
 
     @Override
     public Types.MOVEMENT activeMovement(VGDLSprite sprite, Direction action, double speed)
+    {
+        this.accelerate(sprite, action.x(), action.y(), speed);
+
+        if(action.equals(Types.DNONE))
+            return Types.MOVEMENT.STILL;
+        else
+            return Types.MOVEMENT.MOVE;
+    }
+
+    /**
+     * Applies a force to the sprite, updating its orientation and speed. This is
+     * called every tick for each moving sprite, so it works on the coordinates and
+     * only creates a new orientation if it changed.
+     * @param sprite sprite to apply the force to.
+     * @param ax x coordinate of the force.
+     * @param ay y coordinate of the force.
+     * @param speed speed of the sprite (0 or -1 to use the sprite's one).
+     */
+    private void accelerate(VGDLSprite sprite, double ax, double ay, double speed)
     {
         //Here the assumption is that the controls determine the direction of
         //acceleration of the sprite.
-    	
+
         if(speed == 0)
             speed = sprite.speed;
-        
+
         if(speed == -1)
             speed = sprite.speed;
-    	
-        double v1 = (action.x() / (float)sprite.mass) + (sprite.orientation.x() * speed);
-        double v2 = (action.y() / (float)sprite.mass) + (sprite.orientation.y() * speed);
 
-        Vector2d dir = new Vector2d(v1, v2);
+        double v1 = (ax / (float)sprite.mass) + (sprite.orientation.x() * speed);
+        double v2 = (ay / (float)sprite.mass) + (sprite.orientation.y() * speed);
 
-        double speedD = dir.mag();
+        double mag = Math.sqrt(v1*v1 + v2*v2);
+        double speedD = mag;
         if(sprite.max_speed != -1) {
-            speedD = Math.min(dir.mag(), sprite.max_speed);
+            speedD = Math.min(mag, sprite.max_speed);
         }
 
-        dir.normalise();
-        Direction d = new Direction(dir.x, dir.y);
+        //Same as Vector2d.normalise()
+        double dx = 0, dy = 0;
+        if(mag != 0)
+        {
+            dx = v1 / mag;
+            dy = v2 / mag;
+        }
 
-        sprite.orientation = d;
+        if(Double.compare(sprite.orientation.x(), dx) != 0 || Double.compare(sprite.orientation.y(), dy) != 0)
+            sprite.orientation = new Direction(dx, dy);
         sprite.speed = speedD;
-
-        if(action.equals(Types.DNONE))
-            return Types.MOVEMENT.STILL;
-        else
-            return Types.MOVEMENT.MOVE;
     }
 
 
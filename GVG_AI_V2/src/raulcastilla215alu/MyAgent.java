@@ -7,7 +7,6 @@ import core.game.StateObservation;
 import core.player.AbstractPlayer;
 import ontology.Types;
 import raulcastilla215alu.mytools.Brain;
-import raulcastilla215alu.mytools.QLearning;
 import tools.ElapsedCpuTimer;
 
 /**
@@ -46,9 +45,10 @@ public class MyAgent extends AbstractPlayer {
      * @param elapsedTimer Timer for the controller creation.
      */
     public MyAgent(StateObservation stateObs, ElapsedCpuTimer elapsedTimer) {
-    	String savePath = "./QTable/Qtable.txt";
+    	String savePath = "./QTable/Qtable.qtb";
         randomGenerator = new Random();
         brain = new Brain(stateObs, savePath);
+//        brain = new Brain(stateObs, savePath, savePath + ".progress");
         actions = stateObs.getAvailableActions(true);
         this.stateObs = stateObs;
         
@@ -83,6 +83,8 @@ public class MyAgent extends AbstractPlayer {
      * @param score Game score.
      */
     public void close(double score) {
+    	brain.close();
+    	
     	if(isLearning) {
         	brain.learnLastAction(score);
         	
@@ -91,11 +93,11 @@ public class MyAgent extends AbstractPlayer {
         	
 //        	brain.saveVisitedStates();
 //        	
-        	double time = QLearning.time;
+        	long time = brain.getTime();
         	double alpha = brain.getAlpha();
         	System.out.println("Time = " + time + " Alpha = " + alpha);
         	
-        	brain.showQLearningCounters();
+        	System.out.println(brain.getMetrics());
 //        	
 //        	String row = Double.toString(time) + "," + Double.toString(alpha) + "," + Double.toString(score) + "\n";
 //        	IOModule.write("./time_alpha_score.csv", row, true);
@@ -0,0 +1,206 @@
+package raulcastilla215alu;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import core.game.Game;
+import core.game.StateObservation;
+import core.logging.Logger;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLParser;
+import core.vgdl.VGDLRegistry;
+import ontology.Types;
+import ontology.Types.ACTIONS;
+import raulcastilla215alu.matrix.QTable;
+import raulcastilla215alu.mytools.Brain;
+import raulcastilla215alu.mytools.LearningMetrics;
+import raulcastilla215alu.mytools.LearningSchedule;
+import raulcastilla215alu.mytools.QLearning;
+import raulcastilla215alu.mytools.ReplayBuffer;
+import raulcastilla215alu.mytools.State;
+import raulcastilla215alu.mytools.StateGenerator;
+
+/**
+ * Headless Q-learning trainer. Runs lander episodes on a pool of threads,
+ * each one with its own Game and learner, and all of them learning on the
+ * same Qtable with the same schedule. With experience replay, each learner
+ * keeps its replay buffer for all the episodes of its thread. With
+ * eligibility traces, the learners follow Watkins Q(lambda).
+ *
+ * Episodes are simulated through the forward model, so there is no
+ * controller timing, no visuals and no player tear down.
+ *
+ * Usage: ParallelTrainer [episodes] [threads] [game] [level] [qtable] [replay] [traces]
+ *
+ * @author Raul Castilla Bravo.
+ */
+public class ParallelTrainer {
+
+	public static final String DEFAULTGAME = "examples/contphysics/lander.txt";
+	public static final String DEFAULTLEVEL = "examples/contphysics/lander_lvl1.txt";
+	public static final String DEFAULTQTABLE = "./QTable/Qtable.qtb";
+
+	/**
+	 * Private attributes.
+	 */
+	private QTable qTable;
+	private QTable visitedStates;
+	private LearningSchedule schedule;
+	private LearningMetrics metrics;
+	private boolean replay;
+	private boolean traces;
+	private StateObservation[] initialStates;
+	private AtomicInteger pendingEpisodes;
+	private AtomicInteger winCounter;
+
+
+	/**
+	 * Constructor. Parses one game per worker. Parsing uses the global
+	 * VGDL registries, so it is done here, on the calling thread, before
+	 * any episode starts.
+	 *
+	 * @param gameFile game description file.
+	 * @param levelFile level file.
+	 * @param numWorkers number of threads.
+	 * @param qTablePath Qtable file to start from.
+	 * @param replay true to learn with experience replay.
+	 * @param traces true to learn with eligibility traces.
+	 */
+	public ParallelTrainer(String gameFile, String levelFile, int numWorkers, String qTablePath, 
+						   boolean replay, boolean traces) {
+		Logger.getInstance().active = false;
+		VGDLFactory.GetInstance().init();
+		VGDLRegistry.GetInstance().init();
+
+		initialStates = new StateObservation[numWorkers];
+		for(int i = 0; i < numWorkers; i++) {
+			Game game = new VGDLParser().parseGame(gameFile);
+			game.buildLevel(levelFile, i);
+			initialStates[i] = game.getObservation();
+		}
+
+		ArrayList<State> states = StateGenerator.generate();
+		ArrayList<ACTIONS> actions = initialStates[0].getAvailableActions(true);
+		qTable = new QTable(states, actions, qTablePath);
+		// Workers write to the Qtable, so a mapped snapshot is copied now.
+		qTable.copyToHeap();
+		visitedStates = new QTable(states, actions);
+		schedule = new LearningSchedule();
+		metrics = new LearningMetrics();
+		this.replay = replay;
+		this.traces = traces;
+		winCounter = new AtomicInteger();
+	}
+
+
+	/**
+	 * Runs the episodes and waits until all of them have finished.
+	 *
+	 * @param numEpisodes number of episodes.
+	 */
+	public void train(int numEpisodes) {
+		pendingEpisodes = new AtomicInteger(numEpisodes);
+		ExecutorService pool = Executors.newFixedThreadPool(initialStates.length);
+		ArrayList<Future<?>> workers = new ArrayList<>();
+
+		for(int i = 0; i < initialStates.length; i++) {
+			final StateObservation initialState = initialStates[i];
+			final int workerIndex = i;
+			workers.add(pool.submit(() -> {
+				ReplayBuffer replayBuffer = replay ? new ReplayBuffer(QLearning.REPLAYCAPACITY, QLearning.PRIORITIZEDREPLAY) : null;
+				QLearning qLearning = new QLearning(qTable, visitedStates, replayBuffer, schedule, metrics, traces);
+				// Each worker explores with its own random generator, seeded from its index.
+				qLearning.setSeed(workerIndex);
+				while(pendingEpisodes.getAndDecrement() > 0) {
+					runEpisode(initialState.copy(), qLearning);
+				}
+			}));
+		}
+
+		try {
+			for(Future<?> worker : workers) {
+				worker.get();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+
+	/**
+	 * Plays one episode until the game ends, learning at every tick.
+	 *
+	 * @param stateObs initial state of the episode.
+	 * @param qLearning learner of the worker.
+	 */
+	private void runEpisode(StateObservation stateObs, QLearning qLearning) {
+		Brain brain = new Brain(stateObs, qLearning);
+
+		while(!stateObs.isGameOver()) {
+			stateObs.advance(brain.learn(stateObs));
+		}
+
+		// The forward model does not add the end of game score, so the
+		// result is taken from the winner: learnLastAction reads a score 
+		// of 0 as a loss and any other as a win.
+		boolean won = stateObs.getGameWinner() == Types.WINNER.PLAYER_WINS;
+		brain.learnLastAction(won ? 1 : 0);
+		if(won) {
+			winCounter.incrementAndGet();
+		}
+	}
+
+
+	/**
+	 * @return number of episodes won.
+	 */
+	public int getWins() {
+		return winCounter.get();
+	}
+
+
+	/**
+	 * @return current value of the Q-learning counters of all workers.
+	 */
+	public LearningMetrics.Snapshot getMetrics() {
+		return metrics.snapshot();
+	}
+
+
+	/**
+	 * Save the shared Qtable.
+	 *
+	 * @param path file path, the format is chosen by the extension.
+	 */
+	public void saveQTable(String path) {
+		qTable.save(path);
+	}
+
+
+	public static void main(String[] args) {
+		int numEpisodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int numWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		String gameFile = args.length > 2 ? args[2] : DEFAULTGAME;
+		String levelFile = args.length > 3 ? args[3] : DEFAULTLEVEL;
+		String qTablePath = args.length > 4 ? args[4] : DEFAULTQTABLE;
+		boolean replay = args.length > 5 && Boolean.parseBoolean(args[5]);
+		boolean traces = args.length > 6 && Boolean.parseBoolean(args[6]);
+
+		ParallelTrainer trainer = new ParallelTrainer(gameFile, levelFile, numWorkers, qTablePath, replay, traces);
+
+		long start = System.nanoTime();
+		trainer.train(numEpisodes);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		trainer.saveQTable(qTablePath);
+		System.out.println("Episodes = " + numEpisodes + " Threads = " + numWorkers + "\n" +
+						   "Wins = " + trainer.getWins() + "\n" +
+						   "Episodes per second = " + (numEpisodes / seconds) + "\n" +
+						   trainer.getMetrics());
+	}
+}
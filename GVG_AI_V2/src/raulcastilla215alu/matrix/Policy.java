@@ -0,0 +1,114 @@
+package raulcastilla215alu.matrix;
+
+import java.util.ArrayList;
+
+import ontology.Types.ACTIONS;
+import raulcastilla215alu.mytools.State;
+
+/**
+ * Greedy policy of a Qtable: the best action of every state, stored by
+ * state index. Ties are broken in favour of the first column, as in
+ * QTable.getBestAction.
+ *
+ * The policy is created by QTable.getPolicy() and kept up to date by the
+ * Qtable when a Q value changes.
+ *
+ * @author Raul Castilla Bravo.
+ */
+public class Policy {
+
+	/**
+	 * Private attributes.
+	 */
+	private final QTable qTable;
+	private final ACTIONS[] actions;
+	private final byte[] bestActions;
+	private final float[] bestValues;
+
+
+	/**
+	 * Constructor. Computes the best action of every state.
+	 *
+	 * @param qTable Qtable.
+	 * @param actions action of each column.
+	 * @param numStates number of rows.
+	 */
+	Policy(QTable qTable, ArrayList<ACTIONS> actions, int numStates) {
+		this.qTable = qTable;
+		this.actions = actions.toArray(new ACTIONS[0]);
+		this.bestActions = new byte[numStates];
+		this.bestValues = new float[numStates];
+
+		for(int row = 0; row < numStates; row++) {
+			rebuild(row);
+		}
+	}
+
+
+	/**
+	 * Get best action.
+	 *
+	 * @param s state.
+	 * @return best action.
+	 */
+	public ACTIONS getBestAction(State s) {
+		return actions[bestActions[s.getIndex()]];
+	}
+
+
+	/**
+	 * Get best action column.
+	 *
+	 * @param row row index.
+	 * @return column of the best action.
+	 */
+	public int getBestActionIndex(int row) {
+		return bestActions[row];
+	}
+
+
+	/**
+	 * Update the best action of a row after one of its Q values changed.
+	 * The row is only scanned again when its best value decreases.
+	 *
+	 * @param row row index.
+	 * @param column column index.
+	 * @param qValue new Q value.
+	 */
+	void update(int row, int column, float qValue) {
+		int best = bestActions[row];
+
+		if(column == best) {
+			if(qValue >= bestValues[row]) {
+				bestValues[row] = qValue;
+			} else {
+				rebuild(row);
+			}
+		} else if(qValue > bestValues[row] || (qValue == bestValues[row] && column < best)) {
+			bestActions[row] = (byte) column;
+			bestValues[row] = qValue;
+		}
+	}
+
+
+	/**
+	 * Compute the best action of a row.
+	 *
+	 * @param row row index.
+	 */
+	private void rebuild(int row) {
+		float max = qTable.get(row, 0);
+		int indexMax = 0;
+
+		for(int i = 1; i < actions.length; i++) {
+			float value = qTable.get(row, i);
+			if(max < value) {
+				max = value;
+				indexMax = i;
+			}
+		}
+
+		bestActions[row] = (byte) indexMax;
+		bestValues[row] = max;
+	}
+}
@@ -1,177 +1,256 @@
 package raulcastilla215alu.matrix;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import ontology.Types.ACTIONS;
 import raulcastilla215alu.mytools.*;
 
 /**
- * Defines a Qtable.
+ * Defines a Qtable. The Q values are stored in a dense primitive
+ * buffer in row-major order (states x actions), either on the heap or
+ * mapped from a binary snapshot.
+ *
  * @author Raul Castilla Bravo.
  */
-public class QTable extends Matrix {
+public class QTable {
 
 	/**
 	 * Privates attributes.
 	 */
 	private ArrayList<State> states;
 	private ArrayList<ACTIONS> actions;
+	private volatile FloatBuffer qValues;
+	private int numActions;
+	private int[] actionIndex;
+	private Random randomGenerator;
+	private Object[] rowLocks;
+	private Policy policy;
 	
+	private static final int NUMROWLOCKS = 64;
+
 	/**
 	 * Constructor. Initializes the Qtable using the information introduced
-	 * by parameters. 
-	 * 
+	 * by parameters.
+	 *
 	 * @param states array of row index.
 	 * @param actions array of column index.
-	 * @param path CSV file path to load the qtable. If the CSV file doesnt exist
-	 * generates a random Qtable.
+	 * @param path snapshot or CSV file path to load the qtable. If the file 
+	 * doesnt exist generates a random Qtable.
 	 */
 	public QTable(ArrayList<State> states, ArrayList<ACTIONS> actions, String path) {
-		this.states = states;
-		this.actions = actions;
-		
+		this(states, actions);
+
 		File qTableFile = new File(path);
 		if (!qTableFile.exists()) {
 			initializesWithRandoms();
 			System.out.println("Generate my own QTable");
+		} else if (QTableSnapshot.isSnapshot(path)) {
+			readSnapshot(path);
 		} else {
-			readCSV(path, ',');
-			System.out.println("Read the QTable successfully");
+			try {
+				readCSV(path);
+				System.out.println("Read the QTable successfully");
+			} catch(SizeException ex) {
+				ex.printStackTrace();
+			}
 		}
 	}
-	
+
 	/**
 	 * Constructor. Initializes the Qtable with zeros
-	 * 
+	 *
 	 * @param states array of row index.
 	 * @param actions array of column index.
 	 */
 	public QTable(ArrayList<State> states, ArrayList<ACTIONS> actions) {
 		this.states = states;
 		this.actions = actions;
-		initializesWithZeros();
+		this.numActions = actions.size();
+		this.qValues = FloatBuffer.wrap(new float[states.size() * numActions]);
+		this.randomGenerator = new Random();
+		
+		// Column of each action indexed by its ordinal
+		this.actionIndex = new int[ACTIONS.values().length];
+		for(int i = 0; i < actionIndex.length; i++) {
+			actionIndex[i] = -1;
+		}
+		for(int i = 0; i < numActions; i++) {
+			actionIndex[actions.get(i).ordinal()] = i;
+		}
+		
+		this.rowLocks = new Object[NUMROWLOCKS];
+		for(int i = 0; i < NUMROWLOCKS; i++) {
+			rowLocks[i] = new Object();
+		}
 	}
-	
-	
+
+
+	/**
+	 * Get the lock which guards the row of a state. Learners sharing 
+	 * this Qtable hold it while they update the row, so updates of 
+	 * different rows can proceed in parallel.
+	 *
+	 * @param s state to index the row.
+	 * @return row lock.
+	 */
+	public Object getRowLock(State s) {
+		return getRowLock(s.getIndex());
+	}
+
+
+	/**
+	 * Get the lock which guards a row.
+	 *
+	 * @param row row index.
+	 * @return row lock.
+	 */
+	public Object getRowLock(int row) {
+		return rowLocks[row % NUMROWLOCKS];
+	}
+
+
 	/**
 	 * Get a Q value.
-	 * 
+	 *
 	 * @param s state to index the row.
 	 * @param a action to index the column.
 	 * @return Qvalue.
 	 */
 	public float get(State s, ACTIONS a) {
-		int row = states.indexOf(s);
-		int column = actions.indexOf(a);		
-		return Float.parseFloat(get(row, column));
+		return get(s.getIndex(), getColumn(a));
 	}
-	
+
+	/**
+	 * Get the column of an action that must be in the Qtable.
+	 *
+	 * @param a action.
+	 * @return column index.
+	 */
+	private int getColumn(ACTIONS a) {
+		int column = actionIndex[a.ordinal()];
+		if(column < 0) {
+			throw new IllegalArgumentException("Action " + a + " is not in the QTable");
+		}
+		return column;
+	}
+
+	/**
+	 * Get a Q value.
+	 *
+	 * @param row row index.
+	 * @param column column index.
+	 * @return Qvalue.
+	 */
+	public float get(int row, int column) {
+		return qValues.get(row * numActions + column);
+	}
+
 	/**
 	 * Set a Q value.
-	 * 
+	 *
 	 * @param s state to index the row.
 	 * @param a action to index the column.
-	 * @param qValue 
+	 * @param qValue
 	 */
 	public void set(State s, ACTIONS a, float qValue) {
-		int row = states.indexOf(s);
-		int column = actions.indexOf(a);		
-		set(row, column, Float.toString(qValue));
+		set(s.getIndex(), getColumn(a), qValue);
 	}
-	
+
 	/**
-	 * Create row with zeros.
-	 *  
-	 * @param length row length.
-	 * @return row with zeros.
+	 * Set a Q value.
+	 *
+	 * @param row row index.
+	 * @param column column index.
+	 * @param qValue
 	 */
-	private ArrayList<String> createRowWithZeros(int length) {
-		ArrayList<String> array = new ArrayList<>();
-		
-		for(int i = 0; i < length; i++) {
-			array.add("0");
+	public void set(int row, int column, float qValue) {
+		FloatBuffer values = qValues;
+		if(values.isReadOnly()) {
+			values = copyToHeap();
 		}
-		
-		return array;
-	}
-	
-	/**
-	 * Initializes the Qtable with zeros.
-	 */
-	private void initializesWithZeros() {
-		for(int i = 0; i < states.size(); i++) {
-			addRow(createRowWithZeros(actions.size())); 		
+		values.put(row * numActions + column, qValue);
+		if(policy != null) {
+			policy.update(row, column, qValue);
 		}
 	}
-	
+
 	/**
-	 * Create row with random values.
-	 *  
-	 * @param length row length.
-	 * @return row with random values.
+	 * Copy a mapped Qtable into the heap so it can be modified. The file
+	 * is left untouched until the Qtable is saved. The copy is filled
+	 * before it is published, so learners sharing this Qtable never see
+	 * it half copied. Trainers should call it before their workers start.
+	 *
+	 * @return Q values on the heap.
 	 */
-	private ArrayList<String> createRowWithRandoms(int length) {
-		ArrayList<String> array = new ArrayList<>();
-		Random rd = new Random();
-		
-		for(int i = 0; i < length; i++) {
-			array.add(Float.toString(rd.nextFloat()));
+	public synchronized FloatBuffer copyToHeap() {
+		if(!qValues.isReadOnly()) {
+			return qValues;
 		}
-		
-		return array;
+		FloatBuffer mapped = qValues.duplicate();
+		mapped.clear();
+		FloatBuffer heap = FloatBuffer.allocate(mapped.capacity());
+		heap.put(mapped);
+		heap.clear();
+		qValues = heap;
+		return heap;
 	}
-	
+
 	/**
 	 * Initializes the Qtable with random values.
 	 */
 	private void initializesWithRandoms() {
-		for(int i = 0; i < states.size(); i++) {
-			addRow(createRowWithRandoms(actions.size())); 		
+		for(int i = 0; i < qValues.capacity(); i++) {
+			qValues.put(i, randomGenerator.nextFloat());
 		}
 	}
-	
+
 	/**
 	 * Get max Qvalue.
-	 * 
+	 *
 	 * @param s state to index row.
 	 * @return max Qvalue.
 	 */
 	public float getMaxQValue(State s) {
-		int indexRow = states.indexOf(s);
-		if(indexRow == -1) {
-			System.out.println("longitud= " + states.size());
-			System.out.println("indexRow = " + indexRow);
-			System.out.println("States = " + (State)s);
-		}
-		
-		ArrayList<String> array = getRow(indexRow);
-		float max = Float.parseFloat(array.get(0));
-		
-		for(int i = 1; i < array.size(); i++) {
-			float value = Float.parseFloat(array.get(i));
+		return getMaxQValue(s.getIndex());
+	}
+
+	/**
+	 * Get max Qvalue.
+	 *
+	 * @param row row index.
+	 * @return max Qvalue.
+	 */
+	public float getMaxQValue(int row) {
+		int offset = row * numActions;
+		float max = qValues.get(offset);
+
+		for(int i = 1; i < numActions; i++) {
+			float value = qValues.get(offset + i);
 			if (max < value) {
 				max = value;
 			}
 		}
 		return max;
 	}
-	
+
 	/**
 	 * Get best Action.
-	 * 
+	 *
 	 * @param s state to index row.
 	 * @return best action.
 	 */
 	public ACTIONS getBestAction(State s) {
-		int indexRow = states.indexOf(s);
-		ArrayList<String> array = getRow(indexRow);
-		float max = Float.parseFloat(array.get(0));
+		int offset = s.getIndex() * numActions;
+		float max = qValues.get(offset);
 		int indexMax = 0;
-		
-		for(int i = 1; i < array.size(); i++) {
-			float value = Float.parseFloat(array.get(i));
+
+		for(int i = 1; i < numActions; i++) {
+			float value = qValues.get(offset + i);
 			if (max < value) {
 				max = value;
 				indexMax = i;
@@ -180,16 +259,174 @@ public class QTable extends Matrix {
 
 		return actions.get(indexMax);
 	}
-	
+
 	/**
-	 * Get a random action.
-	 * 
+	 * Get the greedy policy of the Qtable. It is built on the first call
+	 * and then kept up to date on every set.
+	 *
+	 * @return greedy policy.
+	 */
+	public synchronized Policy getPolicy() {
+		if(policy == null) {
+			policy = new Policy(this, actions, states.size());
+		}
+		return policy;
+	}
+
+	/**
+	 * Get the column of an action.
+	 *
+	 * @param a action.
+	 * @return column index, or -1 if the action is not in the Qtable.
+	 */
+	public int getActionIndex(ACTIONS a) {
+		return actionIndex[a.ordinal()];
+	}
+
+	/**
+	 * Get a random action. The Qtable may be shared by several threads, so 
+	 * the random generator is the one of the calling thread.
+	 *
 	 * @return random action.
 	 */
 	public ACTIONS getRandomAction() {
-    	Random rd = new Random();
-    	int action = rd.nextInt(actions.size());
-    	
+		return getRandomAction(ThreadLocalRandom.current());
+	}
+
+	/**
+	 * Get a random action.
+	 *
+	 * @param random random generator of the caller.
+	 * @return random action.
+	 */
+	public ACTIONS getRandomAction(Random random) {
+    	int action = random.nextInt(actions.size());
+
         return actions.get(action);
 	}
+
+	/**
+	 * Load a Qtable that must exist and agree with the states and actions,
+	 * from a binary snapshot or a CSV file. Unlike the constructor, it
+	 * never falls back to a random or empty Qtable.
+	 *
+	 * @param states array of row index.
+	 * @param actions array of column index.
+	 * @param path snapshot or CSV file path.
+	 * @return the Qtable.
+	 * @throws IOException if the file does not exist or is not a valid Qtable.
+	 */
+	public static QTable load(ArrayList<State> states, ArrayList<ACTIONS> actions, String path) throws IOException {
+		if(!new File(path).isFile()) {
+			throw new IOException(path + " does not exist");
+		}
+
+		QTable qTable = new QTable(states, actions);
+		if(QTableSnapshot.isSnapshot(path)) {
+			qTable.qValues = QTableSnapshot.map(path, State.ENCODINGVERSION, states.size(), actions, true);
+		} else {
+			try {
+				qTable.readCSV(path);
+			} catch(SizeException | NumberFormatException ex) {
+				throw new IOException(path + ": " + ex.getMessage(), ex);
+			}
+		}
+		return qTable;
+	}
+
+	/**
+	 * Read a Qtable stored in CSV format. Each cell is parsed only once,
+	 * when the table is loaded.
+	 *
+	 * @param path CSV file path.
+	 * @throws SizeException if the dimensions do not agree with states x actions.
+	 */
+	private void readCSV(String path) throws SizeException {
+		Matrix csv = new Matrix(path);
+
+		if(csv.getHeight() != states.size() || csv.getWidth() != numActions) {
+			throw new SizeException("The CSV file dimensions must agree with states x actions");
+		}
+
+		for(int indexRow = 0; indexRow < csv.getHeight(); indexRow++) {
+			for(int indexColumn = 0; indexColumn < numActions; indexColumn++) {
+				qValues.put(indexRow * numActions + indexColumn, Float.parseFloat(csv.get(indexRow, indexColumn)));
+			}
+		}
+	}
+
+	/**
+	 * Map a Qtable stored as a binary snapshot. If the snapshot does not
+	 * match the current states and actions generates a random Qtable.
+	 *
+	 * @param path snapshot file path.
+	 */
+	private void readSnapshot(String path) {
+		try {
+			qValues = QTableSnapshot.map(path, State.ENCODINGVERSION, states.size(), actions, true);
+			System.out.println("Mapped the QTable successfully");
+		} catch (IOException e) {
+			e.printStackTrace();
+			initializesWithRandoms();
+			System.out.println("Generate my own QTable");
+		}
+	}
+
+	/**
+	 * Saves Qtable information into a binary snapshot. A mapped Qtable is
+	 * copied to the heap first, so it does not keep the old file mapped.
+	 *
+	 * @param path snapshot file path.
+	 */
+	public void toSnapshot(String path) {
+		try {
+			QTableSnapshot.write(path, State.ENCODINGVERSION, states.size(), actions, copyToHeap());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Saves Qtable information choosing the format from the file
+	 * extension: snapshot for QTableSnapshot.EXTENSION, CSV otherwise.
+	 *
+	 * @param path file path.
+	 */
+	public void save(String path) {
+		if(path.endsWith(QTableSnapshot.EXTENSION)) {
+			toSnapshot(path);
+		} else {
+			toCSV(path);
+		}
+	}
+
+	/**
+	 * Saves Qtable information into a CSV file.
+	 *
+	 * @param path CSV file path.
+	 */
+	public void toCSV(String path) {
+		IOModule.write(path, this.toString(), false);
+	}
+
+	/**
+	 * Get a string with the information of the Qtable
+	 * in CSV format.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder(qValues.capacity() * 12);
+
+		for(int indexRow = 0; indexRow < states.size(); indexRow++) {
+			for(int indexColumn = 0; indexColumn < numActions; indexColumn++) {
+				str.append(qValues.get(indexRow * numActions + indexColumn));
+				if(indexColumn < numActions - 1) {
+					str.append(',');
+				}
+			}
+			str.append('\n');
+		}
+
+		return str.toString();
+	}
 }
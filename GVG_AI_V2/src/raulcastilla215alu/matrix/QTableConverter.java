@@ -0,0 +1,58 @@
+package raulcastilla215alu.matrix;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import ontology.Types.ACTIONS;
+import raulcastilla215alu.mytools.StateGenerator;
+
+/**
+ * Converts Qtables between CSV and binary snapshot formats.
+ *
+ * Usage: QTableConverter input output
+ * The output format is chosen by the extension of the output file. The
+ * input must exist and have one row per state and one column per action.
+ * CSV files do not store their state encoding, so they are read with the
+ * current one (State.ENCODINGVERSION, V2 goal). V1 (compass) tables cannot
+ * be converted, as there is no V1 state list to label their rows with.
+ * Example: QTableConverter ./QTable/Qtable.txt ./QTable/Qtable.qtb
+ *
+ * @author Raul Castilla Bravo.
+ */
+public class QTableConverter {
+
+	/**
+	 * Lander actions in the order returned by getAvailableActions(true).
+	 */
+	public static final ACTIONS[] LANDERACTIONS = {
+		ACTIONS.ACTION_LEFT,
+		ACTIONS.ACTION_RIGHT,
+		ACTIONS.ACTION_DOWN,
+		ACTIONS.ACTION_UP,
+		ACTIONS.ACTION_NIL
+	};
+
+
+	public static void main(String[] args) {
+		if(args.length != 2) {
+			System.out.println("Usage: QTableConverter input output");
+			System.exit(2);
+		}
+
+		ArrayList<ACTIONS> actions = new ArrayList<>();
+		for(ACTIONS action : LANDERACTIONS) {
+			actions.add(action);
+		}
+
+		QTable qTable;
+		try {
+			qTable = QTable.load(StateGenerator.generate(), actions, args[0]);
+		} catch (IOException e) {
+			System.err.println("Cannot convert the QTable: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		qTable.save(args[1]);
+		System.out.println("QTable saved in " + args[1]);
+	}
+}
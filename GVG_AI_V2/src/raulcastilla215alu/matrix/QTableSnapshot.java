@@ -0,0 +1,200 @@
+package raulcastilla215alu.matrix;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+import ontology.Types.ACTIONS;
+
+/**
+ * Reads and writes Qtables in a compact binary format which can be
+ * memory-mapped, so a table is available without parsing and its pages
+ * are loaded by the operating system on demand.
+ *
+ * Layout (big-endian):
+ *   int   magic number ("QTBL").
+ *   int   format version.
+ *   int   state encoding version (see State.ENCODINGVERSION).
+ *   int   number of states.
+ *   int   number of actions.
+ *   int[] ordinal of each action column.
+ *   long  CRC32 of the Q values.
+ *   float[] Q values in row-major order (states x actions).
+ *
+ * @author Raul Castilla Bravo.
+ */
+public class QTableSnapshot {
+
+	/**
+	 * Public constants.
+	 */
+	public static final int MAGIC = 0x5154424C;
+	public static final int FORMATVERSION = 1;
+	public static final String EXTENSION = ".qtb";
+
+
+	/**
+	 * Returns true if the file starts with the snapshot magic number.
+	 *
+	 * @param path file path.
+	 * @return true if the file is a Qtable snapshot.
+	 */
+	public static boolean isSnapshot(String path) {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			while(magic.hasRemaining() && channel.read(magic) >= 0);
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Writes a snapshot. The file is written next to the destination and
+	 * then moved over it, so a reader never sees it half written. Where the
+	 * destination cannot be replaced because a table is still mapped from
+	 * it (Windows does not release a mapped file until its buffer is
+	 * collected), the snapshot is written into the existing file instead,
+	 * so the tables mapped from it see the new values.
+	 *
+	 * @param path snapshot file path.
+	 * @param encodingVersion state encoding version.
+	 * @param numStates number of rows.
+	 * @param actions action of each column.
+	 * @param qValues Q values in row-major order.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(String path, int encodingVersion, int numStates,
+							 ArrayList<ACTIONS> actions, FloatBuffer qValues) throws IOException {
+		int numActions = actions.size();
+		ByteBuffer payload = ByteBuffer.allocate(numStates * numActions * Float.BYTES);
+		FloatBuffer source = qValues.duplicate();
+		source.clear();
+		payload.asFloatBuffer().put(source);
+
+		CRC32 crc = new CRC32();
+		crc.update(payload.duplicate());
+
+		ByteBuffer header = ByteBuffer.allocate(headerSize(numActions));
+		header.putInt(MAGIC);
+		header.putInt(FORMATVERSION);
+		header.putInt(encodingVersion);
+		header.putInt(numStates);
+		header.putInt(numActions);
+		for(int i = 0; i < numActions; i++) {
+			header.putInt(actions.get(i).ordinal());
+		}
+		header.putLong(crc.getValue());
+		header.flip();
+
+		Path target = Paths.get(path).toAbsolutePath();
+		Path tmp = Paths.get(target.toString() + ".tmp");
+		writeFile(tmp, header.duplicate(), payload.duplicate());
+		try {
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (FileSystemException e) {
+			// Mapped files cannot be replaced nor truncated on Windows, but they can be written.
+			writeFile(target, header, payload);
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+
+	/**
+	 * Writes a header and a payload at the start of a file, cuts anything 
+	 * after them and forces the content to the storage device.
+	 *
+	 * @param file file path.
+	 * @param header snapshot header.
+	 * @param payload Q values.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private static void writeFile(Path file, ByteBuffer header, ByteBuffer payload) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			long size = header.remaining() + payload.remaining();
+			while(header.hasRemaining()) channel.write(header);
+			while(payload.hasRemaining()) channel.write(payload);
+			if(channel.size() > size) channel.truncate(size);
+			channel.force(true);
+		}
+	}
+
+
+	/**
+	 * Maps a snapshot into memory. The returned buffer is read-only.
+	 *
+	 * @param path snapshot file path.
+	 * @param encodingVersion expected state encoding version.
+	 * @param numStates expected number of rows.
+	 * @param actions expected action of each column.
+	 * @param verify true to check the CRC32 of the Q values, which reads
+	 * the whole table once.
+	 * @return Q values in row-major order.
+	 * @throws IOException if the file is not a valid snapshot for this table.
+	 */
+	public static FloatBuffer map(String path, int encodingVersion, int numStates,
+								  ArrayList<ACTIONS> actions, boolean verify) throws IOException {
+		int numActions = actions.size();
+		MappedByteBuffer buffer;
+
+		try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+			FileChannel channel = file.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if(buffer.capacity() < headerSize(0) || buffer.getInt() != MAGIC) {
+			throw new IOException(path + " is not a Qtable snapshot");
+		}
+		if(buffer.getInt() != FORMATVERSION) {
+			throw new IOException("Unsupported snapshot format version");
+		}
+		if(buffer.getInt() != encodingVersion) {
+			throw new IOException("The snapshot state encoding must agree with State.ENCODINGVERSION");
+		}
+		if(buffer.getInt() != numStates || buffer.getInt() != numActions) {
+			throw new IOException("The snapshot dimensions must agree with states x actions");
+		}
+		for(int i = 0; i < numActions; i++) {
+			if(buffer.getInt() != actions.get(i).ordinal()) {
+				throw new IOException("The snapshot actions must agree with the available actions");
+			}
+		}
+		long checksum = buffer.getLong();
+
+		if(buffer.remaining() != numStates * numActions * Float.BYTES) {
+			throw new IOException("The snapshot is truncated");
+		}
+		ByteBuffer payload = buffer.slice();
+
+		if(verify) {
+			CRC32 crc = new CRC32();
+			crc.update(payload.duplicate());
+			if(crc.getValue() != checksum) {
+				throw new IOException("The snapshot checksum does not match");
+			}
+		}
+
+		return payload.asFloatBuffer();
+	}
+
+
+	/**
+	 * @param numActions number of actions.
+	 * @return header size in bytes.
+	 */
+	private static int headerSize(int numActions) {
+		return 5 * Integer.BYTES + numActions * Integer.BYTES + Long.BYTES;
+	}
+}
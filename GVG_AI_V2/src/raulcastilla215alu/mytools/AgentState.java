@@ -1,8 +1,7 @@
 package raulcastilla215alu.mytools;
 
-import java.util.ArrayList;
-
 import core.game.Observation;
+import core.game.ObservationGrid;
 import core.game.StateObservation;
 import ontology.Types.ACTIONS;
 import tools.Vector2d;
@@ -10,6 +9,9 @@ import tools.Vector2d;
 /**
  * Defines an agent state.
  * 
+ * All the vectors of the state are allocated once and updated in place, so
+ * perceiving a new tick allocates nothing on the agent side.
+ * 
  * @author Raul Castilla Bravo.
  *
  */
@@ -22,6 +24,7 @@ public class AgentState extends State {
 	private Vector2d portalCellPos;
 	private Vector2d agentRealPos;
 	private Vector2d portalRealPos;
+	private boolean portalKnown;
 	
 	private float orientationRad;
 	
@@ -35,6 +38,7 @@ public class AgentState extends State {
 	
 	private int blockSize;
 	private double score;
+	private int index;
 	
 	private float angle_diff = 0.2f;
 	private float min_speed_limit = 4.5f;     //9.35f;
@@ -48,9 +52,6 @@ public class AgentState extends State {
 	public static final int ANGLELEFTGREENZONE = 30;
 	public static final int ANGLERIGHTGREENZONE = 30;
 	
-	private static final int LEFT = 0;
-	private static final int RIGHT = 1;
-	
 	public static final int AXISX = 0;
 	public static final int AXISY = 1;
 	
@@ -58,8 +59,6 @@ public class AgentState extends State {
 	
 	public static final int STEP = 36;
 	
-	private Vector2d defaultVector;
-	
 	
 	/**
 	 * Constructor.
@@ -70,7 +69,13 @@ public class AgentState extends State {
 		blockSize = stateObs.getBlockSize();
 		score = stateObs.getGameScore();
 		
-		defaultVector = new Vector2d(0,-1);
+		agentCellPos = new Vector2d();
+		portalCellPos = new Vector2d();
+		agentRealPos = new Vector2d();
+		portalRealPos = new Vector2d();
+		orientationVector = new Vector2d();
+		displacementVector = new Vector2d();
+		goalVector = new Vector2d();
 
 		perceive(stateObs);
 	}
@@ -85,24 +90,44 @@ public class AgentState extends State {
 		super(obj);
 		
 		this.agentCellPos = new Vector2d(obj.agentCellPos);
-		if(obj.portalCellPos != null) {
-			this.portalCellPos = new Vector2d(obj.portalCellPos);
-		}  
-		
+		this.portalCellPos = new Vector2d(obj.portalCellPos);
 		this.agentRealPos = new Vector2d(obj.agentRealPos);
-		if(obj.portalRealPos != null) {
-			this.portalRealPos = new Vector2d(obj.portalRealPos);
-		}
+		this.portalRealPos = new Vector2d(obj.portalRealPos);
+		this.portalKnown = obj.portalKnown;
 		
-		this.orientationVector = obj.orientationVector;
-		this.displacementVector = obj.displacementVector;
-		this.goalVector = obj.goalVector;
+		this.orientationVector = new Vector2d(obj.orientationVector);
+		this.displacementVector = new Vector2d(obj.displacementVector);
+		this.goalVector = new Vector2d(obj.goalVector);
 		this.speed = obj.speed;
 		
 		this.orientationRad = obj.orientationRad;
 		this.score = obj.score;
 		this.blockSize = obj.blockSize;
 		this.agentDead = obj.agentDead;
+		this.index = obj.index;
+	}
+	
+	
+	/**
+	 * Interprets game informations continuing from another state, usually
+	 * the state of the previous tick. Only the information carried between
+	 * ticks (orientation, speed hysteresis and portal) is taken from it, so 
+	 * two states can be swapped every tick instead of copied.
+	 * 
+	 * @param stateObs game observations.
+	 * @param previous state of the previous tick.
+	 */
+	public void perceive(StateObservation stateObs, AgentState previous) {
+		orientationRad = previous.orientationRad;
+		fast = previous.fast;
+		
+		if(!portalKnown && previous.portalKnown) {
+			portalRealPos.set(previous.portalRealPos);
+			portalCellPos.set(previous.portalCellPos);
+			portalKnown = true;
+		}
+		
+		perceive(stateObs);
 	}
 	
 	
@@ -114,8 +139,8 @@ public class AgentState extends State {
 	public void perceive(StateObservation stateObs) {
 		
 		// AgentState attributes
-		agentRealPos = stateObs.getAvatarPosition();
-		agentCellPos = calculateCell(agentRealPos, stateObs.getBlockSize());	
+		agentRealPos.set(stateObs.getAvatarPosition());
+		setCell(agentCellPos, agentRealPos.x, agentRealPos.y);
 		
 		speed = (float)stateObs.getAvatarSpeed();
 		
@@ -124,31 +149,25 @@ public class AgentState extends State {
 		agentDead = false;
 		agentWinner = false;
 		
-		if(this.portalCellPos == null) {
+		if(!portalKnown) {
 			updatePortalPos(stateObs);
 		}
 		
-		// Initialize arrayStateValues
-		ArrayList<Integer> arrayStateValues = new ArrayList<>();
-		for(int i = 0; i < State.NUMATTRIBUTES; i++) {
-			arrayStateValues.add(0);
-		}
-		
 		// Perceive orientation
 		updateOrientation(stateObs);
-		arrayStateValues.set(State.POSORIENTATION, perceiveOrientation());
+		orientation = perceiveOrientation() % NUMZONEVALUES;
 		
 		// Perceive displacement
 		int displacementValue = perceiveDisplacement(stateObs);
-		arrayStateValues.set(State.POSDISPLACEMENT, displacementValue);
+		displacement = displacementValue % NUMZONEVALUES;
 		
 		// Perceive goal
-		arrayStateValues.set(State.POSGOAL, perceiveGoal(displacementValue));
+		goal = perceiveGoal(displacementValue);
 		
 		// Perceive fast
-		arrayStateValues.set(State.POSFAST, perceiveFast(stateObs));
+		fast = perceiveFast(stateObs);
 		
-		super.update(arrayStateValues);
+		index = super.getIndex();
 	}
 	
 	
@@ -161,168 +180,68 @@ public class AgentState extends State {
 	 */
 	private void updateOrientation(StateObservation stateObs) {
 		ACTIONS lastAction = stateObs.getAvatarLastAction();
-		if(lastAction.equals(ACTIONS.ACTION_LEFT)) {
+		if(lastAction == ACTIONS.ACTION_LEFT) {
 			orientationRad += angle_diff;
 		}
-		if(lastAction.equals(ACTIONS.ACTION_RIGHT)) {
+		if(lastAction == ACTIONS.ACTION_RIGHT) {
 			orientationRad -= angle_diff;
 		}
 	}
 	
 	
 	/**
-	 * Look in game grid to find portal positions.
-	 * 
-	 * @param stateObs Game observations.
-	 * @return All portal observations.
-	 */
-	private ArrayList<Observation> findPortals(StateObservation stateObs){
-		ArrayList<Observation> output = new ArrayList<>();
-		ArrayList<Observation>[][] grid = stateObs.getObservationGrid();
-		Observation obs;
-		ArrayList<Observation> arrayObs;
-		
-		for(int i = 0; i < grid.length; i++) {
-			for(int j = 0; j < grid[0].length; j++) {
-				arrayObs = grid[i][j];
-				if(!arrayObs.isEmpty()) {
-					obs = arrayObs.get(0);
-					if(obs.itype == ITYPEPORTAL) {
-						output.add(obs);
-					}
-				}
-
-			}
-		}
-		return output;
-	}
-	
-	
-	/**
-	 * Get the nearest observation to the agent.
+	 * Return true if a cell of the game grid holds a portal.
 	 * 
-	 * @param obs Array of game observations.
-	 * @return the nearest observation to the agent.
-	 */
-	private Observation getNearest(ArrayList<Observation> obs) {
-		Vector2d currentCellPos;
-		float currentDistance;
-		Observation nearestObs = obs.get(0);
-		float nearestDistance = 100000;
-		
-		for(int i = 0; i < obs.size(); i++) {
-			if(obs.get(i) != null) {
-				currentCellPos = calculateCell(obs.get(i).position, this.blockSize);
-				currentDistance = distance(this.agentCellPos, currentCellPos);
-				if(currentDistance < nearestDistance) {
-					nearestDistance = currentDistance;
-					nearestObs = obs.get(i);
-				}
-			}
-		}
-		return nearestObs;
-	}
-	
-	
-	/**
-	 * Return true if both Observations are neighbors
-	 * @param obsA Observation
-	 * @param obsB Observation
-	 * @param axis LEFT to check if obsA is leftNeighbor of obsB or RIGHT in the other hand.
-	 * @return True if both Observations are neighbors.
+	 * @param grid game grid.
+	 * @param x cell column.
+	 * @param y cell row.
+	 * @return true if the first observation of the cell is a portal.
 	 */
-	private boolean isNeighbor(Observation obsA, Observation obsB, int axis) {
-		Vector2d posA = calculateCell(obsA.position, blockSize);
-		Vector2d posB = calculateCell(obsB.position, blockSize);
-		
-		if(axis == LEFT) {
-			return (posA.y == posB.y) && (posA.x+1 == posB.x);
-		} else {
-			return (posA.y == posB.y) && (posA.x-1 == posB.x);
-		}
-		
+	private static boolean isPortal(ObservationGrid grid, int x, int y) {
+		Observation first = grid.getFirst(x, y);
+		return first != null && first.itype == ITYPEPORTAL;
 	}
 	
-	
+
 	/**
-	 * Return an array with Observations which are neighbors of each others.
+	 * Update portal position with the middle cell of the horizontal run of
+	 * portal cells that contains the portal nearest to the agent.
 	 * 
-	 * @param arrayObs Array of Observations.
-	 * @param obs Seed of the neighborhood.
-	 * @return Array with Observations which are neighbors of each others.
+	 * @param stateObs Game observations.
 	 */
-	private ArrayList<Observation> getNeighbors(ArrayList<Observation> arrayObs, Observation obs){
-		ArrayList<Observation> arrayNeighbors = new ArrayList<>();
-		arrayNeighbors.add(obs);
-		return getNeighborsRec(arrayObs, arrayNeighbors);
-	}
-	
-	
-	/**
-	 * Recursive method for getNeighbors.
-	 * 
-	 * @param arrayObs Array of Observations.
-	 * @param obs Seed of the neighborhood.
-	 * @return Array with Observations which are neighbors of each others.
-	 */
-	private ArrayList<Observation> getNeighborsRec(ArrayList<Observation> arrayObs, 
-			                                       ArrayList<Observation> arrayNeighbors){
-		boolean modified = false;
-		Observation o;
-		
-		// Left part
-		Observation leftNeighbor = arrayNeighbors.get(0);
-		for(int i = 0; i < arrayObs.size(); i++) {
-			o = arrayObs.get(i);
-			if(isNeighbor(o, leftNeighbor, LEFT)) {
-				arrayNeighbors.add(0, o);
-				arrayObs.remove(o);
-				modified = true;
+	private void updatePortalPos(StateObservation stateObs) {
+		ObservationGrid grid = stateObs.getObservationGridCells();
+		int nearestX = -1;
+		int nearestY = -1;
+		double nearestDistance = Double.MAX_VALUE;
+		
+		for(int i = 0; i < grid.getWidth(); i++) {
+			for(int j = 0; j < grid.getHeight(); j++) {
+				if(isPortal(grid, i, j)) {
+					Vector2d position = grid.getFirst(i, j).position;
+					double difX = (int)(position.x/blockSize) - agentCellPos.x;
+					double difY = (int)(position.y/blockSize) - agentCellPos.y;
+					double currentDistance = difX*difX + difY*difY;
+					if(currentDistance < nearestDistance) {
+						nearestDistance = currentDistance;
+						nearestX = i;
+						nearestY = j;
+					}
+				}
 			}
 		}
 		
-		// Right part
-		Observation rightNeighbor = arrayNeighbors.get(arrayNeighbors.size()-1);
-		for(int i = 0; i < arrayObs.size(); i++) {
-			o = arrayObs.get(i);
-			if(isNeighbor(o, rightNeighbor, RIGHT)) {
-				arrayNeighbors.add(o);
-				arrayObs.remove(o);
-				modified = true;
-			}
-		}
+		if(nearestX < 0) return;
 		
-		if(modified) {
-			return getNeighborsRec(arrayObs, arrayNeighbors);
-		} else {
-			return arrayNeighbors;
-		}
-	}
-	
-	
-	/**
-	 * Return the middle neighbor of the neighborhood.
-	 * 
-	 * @param arrayNeighbors Array of Observations
-	 * @return middle neighbor.
-	 */
-	private Observation getMiddleNeighbor(ArrayList<Observation> arrayNeighbors) {
-		int index = Math.round(arrayNeighbors.size()/2);
-		return arrayNeighbors.get(index);
-	}
-	
-
-	/**
-	 * Update portalCellPos with the nearest portal observation.
-	 * 
-	 * @param stateObs Game observations.
-	 */
-	private void updatePortalPos(StateObservation stateObs) {
-		ArrayList<Observation> portals = findPortals(stateObs);
-		Observation nearestPortal = getNearest(portals);
-		ArrayList<Observation> arrayNeighbors = getNeighbors(portals, nearestPortal);
-		this.portalRealPos = getMiddleNeighbor(arrayNeighbors).position;
-		this.portalCellPos = calculateCell(portalRealPos, blockSize);
+		int left = nearestX;
+		while(isPortal(grid, left-1, nearestY)) left--;
+		int right = nearestX;
+		while(isPortal(grid, right+1, nearestY)) right++;
+		
+		int middle = left + (right - left + 1)/2;
+		portalRealPos.set(grid.getFirst(middle, nearestY).position);
+		setCell(portalCellPos, portalRealPos.x, portalRealPos.y);
+		portalKnown = true;
 	}
 	
 	
@@ -339,7 +258,7 @@ public class AgentState extends State {
 		double x = Math.cos(Math.toRadians(degrees));
 		double y = Math.sin(Math.toRadians(degrees));
 		
-		this.orientationVector = new Vector2d(x,y);
+		this.orientationVector.set(x,y);
 		
 		return (int)(degrees/STEP);
 	}
@@ -377,12 +296,12 @@ public class AgentState extends State {
 	 * @return current displacement.
 	 */
 	private int perceiveDisplacement(StateObservation stateObs) {
-		this.displacementVector = stateObs.getAvatarOrientation();
-
-		displacementVector.set(displacementVector.x, -displacementVector.y);
+		// The engine vector may be shared (Types.NIL), so it is only read.
+		Vector2d avatarOrientation = stateObs.getAvatarOrientation();
+		displacementVector.set(avatarOrientation.x, -avatarOrientation.y);
 		
 		if(displacementVector.x == 0 && displacementVector.y == 0) {
-			this.displacementVector = this.defaultVector;
+			displacementVector.set(0, -1);
 		}
 		
 		
@@ -406,7 +325,7 @@ public class AgentState extends State {
 		x = x/norma;
 		y = y/norma;
 		
-		this.goalVector = new Vector2d(x,y);
+		this.goalVector.set(x,y);
 		
 		float degrees = calculateDegreesFromVector((float)goalVector.x, (float)goalVector.y);
 		int goalRegion = (int)(degrees/STEP);
@@ -428,6 +347,18 @@ public class AgentState extends State {
 	}
 	
 	
+	/**
+	 * Set a cell position from a position expressed in real values.
+	 * 
+	 * @param cell cell position to update.
+	 * @param x coordinate of axis x.
+	 * @param y coordinate of axis y.
+	 */
+	private void setCell(Vector2d cell, double x, double y) {
+		cell.set((int) (x/blockSize), (int) (y/blockSize));
+	}
+	
+	
 	/**
 	 * Cast the position expressed in reals values to position expressed in cell coordinates.
 	 * 
@@ -522,7 +453,7 @@ public class AgentState extends State {
 		str +=  "Agent position = " + agentCellPos.toString() + "\n" + 
 				"Portal position = ";
 		
-		if(portalCellPos == null) {
+		if(!portalKnown) {
 			str += "null" + "\n";
 		} else {
 			str += portalCellPos.toString() + "\n";
@@ -575,7 +506,7 @@ public class AgentState extends State {
 	 * @return true if the portal exist.
 	 */
 	public boolean portalExist() {
-		return portalCellPos != null;
+		return portalKnown;
 	}
 	
 	
@@ -595,6 +526,22 @@ public class AgentState extends State {
 	}
 	
 	
+	/**
+	 * @return portal position in cell coordinates, or null if it is unknown.
+	 */
+	public Vector2d getPortalPos() {
+		return portalKnown ? portalCellPos : null;
+	}
+	
+	
+	/**
+	 * @return orientation value in degrees.
+	 */
+	public float getOrientationDegrees() {
+		return (float)Math.toDegrees(this.orientationRad);
+	}
+	
+	
 	/**
 	 * @return True if the agents moves fast.
 	 */
@@ -635,6 +582,15 @@ public class AgentState extends State {
 	}
 	
 	
+	/**
+	 * @return state index, computed once per perceived tick.
+	 */
+	@Override
+	public int getIndex() {
+		return index;
+	}
+	
+	
 	/**
 	 * @return True if displacement is in the direction of the goal.
 	 */
@@ -1,9 +1,13 @@
 package raulcastilla215alu.mytools;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 
 import core.game.StateObservation;
 import ontology.Types.ACTIONS;
+import raulcastilla215alu.matrix.Policy;
 import raulcastilla215alu.matrix.QTable;
 
 /**
@@ -24,15 +28,68 @@ public class Brain {
 	private String savePath;
 	private QTable qTable;
 	private QTable visitedStates;
+	private Policy policy;
+	private TraceWriter trace;
+	private String progressPath;
+	
+	private static final String TRACEPATH = "./History.txt";
+	private static final TraceWriter.Format TRACEFORMAT = TraceWriter.Format.TEXT;
 	
 	
 	/**
 	 * Constructor. Initializes the brain with the observations introduced by parameters.
+	 * The learning schedule and counters are its own and start from zero, as 
+	 * they are not persisted.
 	 * 
 	 * @param stateObs game observations.
 	 * @param savePath CSV file path to load the information of the Qtable.
 	 */
 	public Brain(StateObservation stateObs, String savePath) {
+		this(stateObs, savePath, (String) null);
+	}
+	
+	
+	/**
+	 * Constructor. Initializes the brain with the observations introduced by parameters.
+	 * The learning schedule and counters continue from the progress file, which is 
+	 * rewritten by saveQTable(). The file must have a single writer: learners sharing 
+	 * it would overwrite each other's progress.
+	 * 
+	 * @param stateObs game observations.
+	 * @param savePath CSV file path to load the information of the Qtable.
+	 * @param progressPath progress file path, or null to not persist the progress.
+	 */
+	public Brain(StateObservation stateObs, String savePath, String progressPath) {
+		this(stateObs, savePath, readProgress(progressPath));
+		this.progressPath = progressPath;
+	}
+	
+	
+	/**
+	 * Constructor. Continues the learning progress introduced by parameters.
+	 * 
+	 * @param stateObs game observations.
+	 * @param savePath CSV file path to load the information of the Qtable.
+	 * @param progress learning steps of the schedule followed by the counters.
+	 */
+	private Brain(StateObservation stateObs, String savePath, long[] progress) {
+		this(stateObs, savePath, new LearningSchedule(progress[0]), 
+				new LearningMetrics(new LearningMetrics.Snapshot(progress[1], progress[2], progress[3], 
+						progress[4], progress[5], progress[6])));
+	}
+	
+	
+	/**
+	 * Constructor. Initializes the brain with the observations introduced by parameters.
+	 * It learns without experience replay, as its learner only lives for a match: 
+	 * replay is for learners kept between matches (see ParallelTrainer).
+	 * 
+	 * @param stateObs game observations.
+	 * @param savePath CSV file path to load the information of the Qtable.
+	 * @param schedule learning schedule, which may be kept between matches.
+	 * @param metrics learning counters, which may be kept between matches.
+	 */
+	public Brain(StateObservation stateObs, String savePath, LearningSchedule schedule, LearningMetrics metrics) {
 		this.savePath = savePath;
         currentState = new AgentState(stateObs);
         previousState = new AgentState(stateObs);
@@ -42,7 +99,25 @@ public class Brain {
         ArrayList<ACTIONS> actions = stateObs.getAvailableActions(true);
 		qTable = new QTable(states , actions, savePath);
 		visitedStates = new QTable(states, actions);
-		qLearning = new QLearning(qTable, visitedStates);
+		qLearning = new QLearning(qTable, visitedStates, null, schedule, metrics);
+	}
+	
+	
+	/**
+	 * Constructor. Initializes the brain with a learner kept between matches,
+	 * whose Qtables may be shared with other learners. The Qtables are saved 
+	 * by their owner, so saveQTable() does nothing.
+	 * 
+	 * @param stateObs game observations.
+	 * @param qLearning learner.
+	 */
+	public Brain(StateObservation stateObs, QLearning qLearning) {
+        currentState = new AgentState(stateObs);
+        previousState = new AgentState(stateObs);
+        lastAction = stateObs.getAvatarLastAction();
+        
+		this.qLearning = qLearning;
+		this.qTable = qLearning.getQTable();
 	}
 	
 	
@@ -53,8 +128,11 @@ public class Brain {
 	 * @return next game action.
 	 */
 	public ACTIONS learn(StateObservation stateObs) {
-		previousState = new AgentState(currentState);
-		currentState.perceive(stateObs);
+		// The two states are swapped instead of copied.
+		AgentState swap = previousState;
+		previousState = currentState;
+		currentState = swap;
+		currentState.perceive(stateObs, previousState);
 		lastAction = stateObs.getAvatarLastAction();
 		lastAction = qLearning.learn(previousState, lastAction, currentState);
 		return lastAction;
@@ -75,6 +153,7 @@ public class Brain {
 			currentState.setAgentWinner(true);
 		}
 		qLearning.learn(previousState, lastAction, currentState);
+		qLearning.endMatch();
 	}
 	
 	
@@ -88,18 +167,78 @@ public class Brain {
 
 		currentState.perceive(stateObs);
 		
-		String content = "Ticks = " + stateObs.getGameTick() + "\n" + currentState.toString();
-		IOModule.write("./History.txt", content, true);
+		if(trace == null) {
+			trace = new TraceWriter(TRACEPATH, TRACEFORMAT);
+		}
+		trace.record(stateObs.getGameTick(), currentState);
 		
-		return qTable.getBestAction(currentState);
+		if(policy == null) {
+			policy = qTable.getPolicy();
+		}
+		return policy.getBestAction(currentState);
 	}
 	
 	
 	/**
-	 * Save the Qtable information.
+	 * Write the pending trace records and stop the trace writer.
+	 */
+	public void close() {
+		if(trace != null) {
+			trace.close();
+			if(trace.getDropped() > 0) {
+				System.out.println("Trace records dropped = " + trace.getDropped());
+			}
+			trace = null;
+		}
+	}
+	
+	
+	/**
+	 * Save the Qtable information, and the learning progress if it is persisted.
 	 */
 	public void saveQTable() {
-		qLearning.saveQTable(savePath);
+		if(savePath != null) {
+			qLearning.saveQTable(savePath);
+		}
+		if(progressPath != null) {
+			saveProgress(progressPath);
+		}
+	}
+	
+	
+	/**
+	 * Save the learning steps of the schedule and the counters in CSV format.
+	 * 
+	 * @param path progress file path.
+	 */
+	private void saveProgress(String path) {
+		LearningMetrics.Snapshot metrics = getMetrics();
+		IOModule.write(path, getTime() + "," + metrics.matches + "," + metrics.deads + "," + metrics.wins + "," 
+				+ metrics.fastMacro + "," + metrics.displacementMacro + "," + metrics.correctDispMacro + "\n", false);
+	}
+	
+	
+	/**
+	 * Read the learning progress saved by saveProgress.
+	 * 
+	 * @param path progress file path, or null.
+	 * @return learning steps of the schedule followed by the counters, all zero 
+	 * if there is no file.
+	 */
+	private static long[] readProgress(String path) {
+		long[] progress = new long[7];
+		try {
+			if(path != null && Files.exists(Paths.get(path))) {
+				String[] values = new String(Files.readAllBytes(Paths.get(path))).trim().split(",");
+				for(int i = 0; i < progress.length; i++) {
+					progress[i] = Long.parseLong(values[i]);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+			progress = new long[7];
+		}
+		return progress;
 	}
 	
 	
@@ -120,9 +259,17 @@ public class Brain {
 	
 	
 	/**
-	 * Show Q-Learning counters.
+	 * @return number of learning steps of the Q-learning schedule.
+	 */
+	public long getTime() {
+		return this.qLearning.getTime();
+	}
+	
+	
+	/**
+	 * @return current value of the Q-learning counters.
 	 */
-	public void showQLearningCounters() {
-		qLearning.showCounters();
+	public LearningMetrics.Snapshot getMetrics() {
+		return this.qLearning.getMetrics();
 	}
 }
@@ -0,0 +1,124 @@
+package raulcastilla215alu.mytools;
+
+/**
+ * Sparse set of eligibility traces for Q(lambda). Only the recently
+ * visited (state, action) pairs are kept, in primitive arrays of bounded
+ * size, so the cost of a learning step is bounded by the capacity.
+ *
+ * @author Raul Castilla Bravo.
+ */
+public class EligibilityTraces {
+
+	/**
+	 * Private attributes.
+	 */
+	private final int[] rows;
+	private final int[] columns;
+	private final float[] values;
+	private int size;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity maximum number of traces.
+	 */
+	public EligibilityTraces(int capacity) {
+		rows = new int[capacity];
+		columns = new int[capacity];
+		values = new float[capacity];
+		size = 0;
+	}
+
+
+	/**
+	 * Set the trace of a visited pair to one (replacing traces). When the
+	 * set is full the weakest trace is replaced.
+	 *
+	 * @param row state index.
+	 * @param column action column.
+	 */
+	public void visit(int row, int column) {
+		int weakest = 0;
+
+		for(int i = 0; i < size; i++) {
+			if(rows[i] == row && columns[i] == column) {
+				values[i] = 1;
+				return;
+			}
+			if(values[i] < values[weakest]) {
+				weakest = i;
+			}
+		}
+
+		int index = size < rows.length ? size++ : weakest;
+		rows[index] = row;
+		columns[index] = column;
+		values[index] = 1;
+	}
+
+
+	/**
+	 * Multiply every trace by a factor and remove the traces under a limit.
+	 *
+	 * @param factor decay factor (gamma * lambda).
+	 * @param minValue smallest trace kept.
+	 */
+	public void decay(float factor, float minValue) {
+		int kept = 0;
+
+		for(int i = 0; i < size; i++) {
+			float value = values[i] * factor;
+			if(value >= minValue) {
+				rows[kept] = rows[i];
+				columns[kept] = columns[i];
+				values[kept] = value;
+				kept++;
+			}
+		}
+		size = kept;
+	}
+
+
+	/**
+	 * Remove all traces.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+
+	/**
+	 * @return number of traces.
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * @param index trace index.
+	 * @return state index of the trace.
+	 */
+	public int getRow(int index) {
+		return rows[index];
+	}
+
+
+	/**
+	 * @param index trace index.
+	 * @return action column of the trace.
+	 */
+	public int getColumn(int index) {
+		return columns[index];
+	}
+
+
+	/**
+	 * @param index trace index.
+	 * @return trace value.
+	 */
+	public float getValue(int index) {
+		return values[index];
+	}
+}
@@ -0,0 +1,101 @@
+package raulcastilla215alu.mytools;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a Q-learning run. They can be updated from several threads
+ * and are read through immutable snapshots.
+ * 
+ * @author Raul Castilla Bravo.
+ */
+public class LearningMetrics {
+
+	/**
+	 * Private attributes.
+	 */
+	private final LongAdder matchCounter = new LongAdder();
+	private final LongAdder deadCounter = new LongAdder();
+	private final LongAdder winCounter = new LongAdder();
+	private final LongAdder fastMacroCounter = new LongAdder();
+	private final LongAdder displacementMacroCounter = new LongAdder();
+	private final LongAdder correctDispMacroCounter = new LongAdder();
+	
+	
+	/**
+	 * Constructor. Starts all the counters at zero.
+	 */
+	public LearningMetrics() {
+	}
+	
+	
+	/**
+	 * Constructor. Continues the counters of a previous run.
+	 * 
+	 * @param start counters of the previous run.
+	 */
+	public LearningMetrics(Snapshot start) {
+		matchCounter.add(start.matches);
+		deadCounter.add(start.deads);
+		winCounter.add(start.wins);
+		fastMacroCounter.add(start.fastMacro);
+		displacementMacroCounter.add(start.displacementMacro);
+		correctDispMacroCounter.add(start.correctDispMacro);
+	}
+	
+	
+	void addMatch() { matchCounter.increment(); }
+	void addDead() { deadCounter.increment(); }
+	void addWin() { winCounter.increment(); }
+	void addFastMacro() { fastMacroCounter.increment(); }
+	void addDisplacementMacro() { displacementMacroCounter.increment(); }
+	void addCorrectDispMacro() { correctDispMacroCounter.increment(); }
+	
+	
+	/**
+	 * @return current value of the counters.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(matchCounter.sum(), deadCounter.sum(), winCounter.sum(), 
+							fastMacroCounter.sum(), displacementMacroCounter.sum(), 
+							correctDispMacroCounter.sum());
+	}
+	
+	
+	/**
+	 * Value of the counters at one point in time.
+	 */
+	public static class Snapshot {
+		
+		public final long matches;
+		public final long deads;
+		public final long wins;
+		public final long fastMacro;
+		public final long displacementMacro;
+		public final long correctDispMacro;
+		
+		
+		Snapshot(long matches, long deads, long wins, long fastMacro, 
+						 long displacementMacro, long correctDispMacro) {
+			this.matches = matches;
+			this.deads = deads;
+			this.wins = wins;
+			this.fastMacro = fastMacro;
+			this.displacementMacro = displacementMacro;
+			this.correctDispMacro = correctDispMacro;
+		}
+		
+		
+		/**
+		 * Returns a String with the information of the object.
+		 */
+		@Override
+		public String toString() {
+			return "Match counter = " + matches + "\n" +
+				   "Dead counter = " + deads + "\n" +
+				   "Win counter = " + wins + "\n" + 
+				   "Fast macro counter = " + fastMacro + "\n" + 
+				   "Displacement macro counter = " + displacementMacro + "\n" + 
+				   "Correct displacement counter = " + correctDispMacro + "\n";
+		}
+	}
+}
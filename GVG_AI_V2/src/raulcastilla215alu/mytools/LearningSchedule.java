@@ -0,0 +1,72 @@
+package raulcastilla215alu.mytools;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Defines the decay of the learning factor and the exploration rate.
+ * Both decay with the number of learning steps, so learners which share
+ * a schedule also share the same time.
+ * 
+ * @author Raul Castilla Bravo.
+ */
+public class LearningSchedule {
+
+	/**
+	 * Private attributes.
+	 */
+	private final AtomicLong time;
+	
+	private final float CONSTANT = 40000;
+	private final float INITIALALPHA = 0.8f;
+	private final float INITIALEPSILON = 0.8f;
+	
+	
+	/**
+	 * Constructor. Starts at time zero.
+	 */
+	public LearningSchedule() {
+		this(0);
+	}
+	
+	
+	/**
+	 * Constructor. Continues a schedule saved at the time introduced by parameters.
+	 * 
+	 * @param time number of learning steps.
+	 */
+	public LearningSchedule(long time) {
+		this.time = new AtomicLong(time);
+	}
+	
+	
+	/**
+	 * Advance the schedule one learning step.
+	 */
+	public void step() {
+		time.incrementAndGet();
+	}
+	
+	
+	/**
+	 * @return number of learning steps.
+	 */
+	public long getTime() {
+		return time.get();
+	}
+	
+	
+	/**
+	 * @return learning factor at the current time.
+	 */
+	public float getAlpha() {
+		return INITIALALPHA*CONSTANT/(CONSTANT + time.get());
+	}
+	
+	
+	/**
+	 * @return exploration rate at the current time.
+	 */
+	public float getEpsilon() {
+		return INITIALEPSILON*CONSTANT/(CONSTANT + time.get());
+	}
+}
@@ -20,12 +20,15 @@ public class QLearning {
 	private QTable qTable;
 	private float gamma;
 	private float alpha;
-	public static double time = 0;
 	private float epsilon;
+	private Random randomGenerator;
 	
 	private QTable visitedStates;
-	
-	private final float CONSTANT = 40000;
+	private ReplayBuffer replayBuffer;
+	private LearningSchedule schedule;
+	private LearningMetrics metrics;
+	private EligibilityTraces traces;
+	private boolean eligibilityTraces;
 	
 	private final float WINREWARD = 2000f;
 	private final float DEADREWARD = -2000f;
@@ -35,35 +38,93 @@ public class QLearning {
 //	private final int DISTANCEFACTOR = 10;
 	private final int MINANGLEDIF = 12;
 	
-	private static int matchCounter = 0;
-	private static int deadCounter = 0;
-	private static int winCounter = 0;
-	private static int fastMacroCounter = 0;
-	private static int displacementMacroCounter = 0;
-	private static int correctDispMacroCounter = 0;
+	public static final int REPLAYCAPACITY = 65536;
+	public static final boolean PRIORITIZEDREPLAY = true;
+	public static final int REPLAYSTEPBATCH = 8;        // Replayed transitions after each tick.
+	public static final int REPLAYCLOSEBATCH = 2048;    // Most replayed transitions at the end of a match, never more than stored.
+	
+	// Watkins Q(lambda). gamma stays 0.5 in this mode too: the shaping rewards come every tick 
+	// (up to 3*BIGREWARD), and with a longer horizon their sum would hide WINREWARD and DEADREWARD.
+	// With gamma*LAMBDA = 0.5 a trace reaches the 10 previous steps, beyond which a terminal 
+	// reward is worth less than one reward unit after discounting.
+	public static final float LAMBDA = 1f;
+	public static final float MINTRACE = 0.0005f;           // 1/WINREWARD, smaller traces are dropped.
+	public static final int MAXTRACES = 16;                 // Bounds the cost of a learning step, above the 11 live traces.
 	
 	
 	/**
-	 * Constructor. Initializes the Qtable.
+	 * Constructor. Initializes the Qtable with a new schedule and new counters,
+	 * without experience replay.
 	 * @param qTable initial Qtable.
 	 */
 	public QLearning(QTable qTable, QTable visitedStates) {
+		this(qTable, visitedStates, null, new LearningSchedule(), new LearningMetrics());
+	}
+	
+	
+	/**
+	 * Constructor. Initializes the Qtable, the replay buffer, the schedule 
+	 * and the counters. All of them may outlive this learner or be shared 
+	 * with other learners. The replay buffer should live as long as the 
+	 * learner, so that it holds the transitions of many matches.
+	 * @param qTable initial Qtable.
+	 * @param visitedStates visited states table.
+	 * @param replayBuffer replay buffer, null to learn without experience replay.
+	 * @param schedule learning factor and exploration rate schedule.
+	 * @param metrics learning counters.
+	 */
+	public QLearning(QTable qTable, QTable visitedStates, ReplayBuffer replayBuffer, 
+					 LearningSchedule schedule, LearningMetrics metrics) {
+		this(qTable, visitedStates, replayBuffer, schedule, metrics, false);
+	}
+	
+	
+	/**
+	 * Constructor. Initializes the Qtable, the replay buffer, the schedule 
+	 * and the counters, and selects the learning rule.
+	 * @param qTable initial Qtable.
+	 * @param visitedStates visited states table.
+	 * @param replayBuffer replay buffer, null to learn without experience replay.
+	 * @param schedule learning factor and exploration rate schedule.
+	 * @param metrics learning counters.
+	 * @param eligibilityTraces true for Watkins Q(lambda), false for one-step Q-learning.
+	 * With traces, the replay buffer is only replayed at the end of each match.
+	 */
+	public QLearning(QTable qTable, QTable visitedStates, ReplayBuffer replayBuffer, 
+					 LearningSchedule schedule, LearningMetrics metrics, boolean eligibilityTraces) {
 		this.qTable = qTable;
 		this.visitedStates = visitedStates;
+		this.replayBuffer = replayBuffer;
+		this.schedule = schedule;
+		this.metrics = metrics;
 		gamma = 0.5f;
-		alpha = 0.8f;
-		epsilon = 0.8f;
-		
+		alpha = schedule.getAlpha();
+		epsilon = schedule.getEpsilon();
+		randomGenerator = new Random();
+		this.eligibilityTraces = eligibilityTraces;
+		traces = new EligibilityTraces(MAXTRACES);
 	}
 	
 	
 	/**
-	 * Save the Qtable information into CSV format.
+	 * Seed the random generator of the exploration policy, which is 
+	 * the learner's own.
+	 * 
+	 * @param seed seed.
+	 */
+	public void setSeed(long seed) {
+		randomGenerator.setSeed(seed);
+	}
+	
+	
+	/**
+	 * Save the Qtable information, as a snapshot or in CSV format 
+	 * depending on the file extension.
 	 * 
 	 * @param path path to save the Qtable information.
 	 */
 	public void saveQTable(String path) {
-		qTable.toCSV(path);
+		qTable.save(path);
 	}
 	
 	
@@ -87,17 +148,96 @@ public class QLearning {
 	 */
 	public ACTIONS learn(AgentState previousState, ACTIONS lastAction, AgentState currentState) {
 
-		float sample = reward(previousState, lastAction, currentState) + gamma * qTable.getMaxQValue(currentState);
-		float newQValue = (1-alpha)*qTable.get(previousState, lastAction) + alpha*sample;
-		qTable.set(previousState, lastAction, newQValue);
+		float reward = reward(previousState, lastAction, currentState);
+		
+		if(eligibilityTraces) {
+			learnWithTraces(previousState, lastAction, currentState, reward);
+		} else {
+			synchronized(qTable.getRowLock(previousState)) {
+				float sample = reward + gamma * qTable.getMaxQValue(currentState);
+				float newQValue = (1-alpha)*qTable.get(previousState, lastAction) + alpha*sample;
+				qTable.set(previousState, lastAction, newQValue);
+				
+				visitedStates.set(previousState, lastAction, visitedStates.get(previousState, lastAction) + 1);
+			}
+		}
+		
+		if(replayBuffer != null) {
+			replayBuffer.add(previousState.getIndex(), qTable.getActionIndex(lastAction), reward, currentState.getIndex());
+			// One-step updates between ticks would undo the ones of the traces.
+			if(!eligibilityTraces) {
+				replay(REPLAYSTEPBATCH);
+			}
+		}
 		
-		visitedStates.set(previousState, lastAction, visitedStates.get(previousState, lastAction) + 1);
 		updateConstants();
 		
 		return nextAction(currentState);
 	}
 	
 	
+	/**
+	 * Execute the Watkins Q(lambda) formula. The temporal difference error of
+	 * the last transition is applied to every traced (state, action) pair,
+	 * and the traces decay in place.
+	 * 
+	 * @param previousState previous state.
+	 * @param lastAction last action.
+	 * @param currentState current state.
+	 * @param reward reward of the transition.
+	 */
+	private void learnWithTraces(AgentState previousState, ACTIONS lastAction, AgentState currentState, float reward) {
+		int row = previousState.getIndex();
+		int column = qTable.getActionIndex(lastAction);
+		float tdError;
+		
+		synchronized(qTable.getRowLock(row)) {
+			tdError = reward + gamma * qTable.getMaxQValue(currentState) - qTable.get(row, column);
+			visitedStates.set(row, column, visitedStates.get(row, column) + 1);
+		}
+		
+		traces.visit(row, column);
+		
+		for(int i = 0; i < traces.size(); i++) {
+			int traceRow = traces.getRow(i);
+			int traceColumn = traces.getColumn(i);
+			
+			synchronized(qTable.getRowLock(traceRow)) {
+				float qValue = qTable.get(traceRow, traceColumn);
+				qTable.set(traceRow, traceColumn, qValue + alpha*tdError*traces.getValue(i));
+			}
+		}
+		
+		traces.decay(gamma * LAMBDA, MINTRACE);
+	}
+	
+	
+	/**
+	 * Apply the Q-learning formula to transitions sampled from the replay buffer.
+	 * 
+	 * @param batchSize number of transitions to replay.
+	 */
+	public void replay(int batchSize) {
+		if(replayBuffer == null || replayBuffer.size() == 0) return;
+		
+		for(int i = 0; i < batchSize; i++) {
+			int position = replayBuffer.sample();
+			int row = replayBuffer.getState(position);
+			int column = replayBuffer.getAction(position);
+			float tdError;
+			
+			synchronized(qTable.getRowLock(row)) {
+				float qValue = qTable.get(row, column);
+				float sample = replayBuffer.getReward(position) + gamma * qTable.getMaxQValue(replayBuffer.getNextState(position));
+				tdError = sample - qValue;
+				qTable.set(row, column, qValue + alpha*tdError);
+			}
+			
+			replayBuffer.updatePriority(position, tdError);
+		}
+	}
+	
+	
 	/**
 	 * Reward function.
 	 * 
@@ -109,27 +249,27 @@ public class QLearning {
 	private float reward(AgentState previousState, ACTIONS lastAction, AgentState currentState) {
 		
 		if(currentState.isAgentDead()) {
-			deadCounter++;
+			metrics.addDead();
 			return DEADREWARD;
 		}
 
 		if(currentState.isAgentWinner() && !previousState.isFast() && !currentState.isFast() && currentState.isAgentOverPortal()) {
-			winCounter++;
+			metrics.addWin();
 			return WINREWARD;
 		}
 
 		if(previousState.isFast()) {
-			fastMacroCounter++;
+			metrics.addFastMacro();
 			return fastMacroStateReward(previousState, lastAction, currentState);
 		}
 
 		
 		if(!previousState.isDisplacementCorrect()) {
-			displacementMacroCounter++;
+			metrics.addDisplacementMacro();
 			return displacementMacroStateReward(previousState, lastAction, currentState);
 		}
 
-		correctDispMacroCounter++;
+		metrics.addCorrectDispMacro();
 		return 3*BIGREWARD;
 	}
 	
@@ -192,11 +332,16 @@ public class QLearning {
 	 * @return next action.
 	 */
 	private ACTIONS nextAction(AgentState currentState) {
-		Random rd = new Random();
-		float randomNumber = Math.abs(rd.nextFloat());
+		float randomNumber = Math.abs(randomGenerator.nextFloat());
 
 		if (randomNumber < epsilon) {
-			return qTable.getRandomAction();
+			ACTIONS action = qTable.getRandomAction(randomGenerator);
+			
+			// Watkins Q(lambda): traces are cut after an exploratory action.
+			if(eligibilityTraces && action != qTable.getBestAction(currentState)) {
+				traces.clear();
+			}
+			return action;
 		} else {
 			return qTable.getBestAction(currentState);
 		}
@@ -207,10 +352,10 @@ public class QLearning {
 	 * Update Q-learning constants.
 	 */
 	private void updateConstants() {
-		alpha = (float) (0.8*CONSTANT/(CONSTANT + time));
-		epsilon = (float) (0.8*CONSTANT/(CONSTANT + time));
+		alpha = schedule.getAlpha();
+		epsilon = schedule.getEpsilon();
 		
-		time++;
+		schedule.step();
 	}
 	
 	
@@ -223,15 +368,38 @@ public class QLearning {
 	
 	
 	/**
-	 * Show Q-Learning counters.
+	 * Count the end of a match, and replay up to REPLAYCLOSEBATCH of the
+	 * stored transitions, so a transition is replayed about once at most.
+	 */
+	public void endMatch() {
+		if(replayBuffer != null) {
+			replay(Math.min(REPLAYCLOSEBATCH, replayBuffer.size()));
+		}
+		traces.clear();
+		metrics.addMatch();
+	}
+	
+	
+	/**
+	 * @return number of learning steps of the schedule.
+	 */
+	public long getTime() {
+		return schedule.getTime();
+	}
+	
+	
+	/**
+	 * @return Qtable being learned.
+	 */
+	public QTable getQTable() {
+		return qTable;
+	}
+	
+	
+	/**
+	 * @return current value of the Q-learning counters.
 	 */
-	public void showCounters() {
-		matchCounter++;
-		System.out.println("Match counter = " + matchCounter + "\n" +
-						   "Dead counter = " + deadCounter + "\n" +
-						   "Win counter = " + winCounter + "\n" + 
-						   "Fast macro counter = " + fastMacroCounter + "\n" + 
-						   "Displacement macro counter = " + displacementMacroCounter + "\n" + 
-						   "Correct displacement counter = " + correctDispMacroCounter + "\n");
+	public LearningMetrics.Snapshot getMetrics() {
+		return metrics.snapshot();
 	}
 }
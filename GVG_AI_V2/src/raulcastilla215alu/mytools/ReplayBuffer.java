@@ -0,0 +1,185 @@
+package raulcastilla215alu.mytools;
+
+import java.util.Random;
+
+/**
+ * Fixed-capacity experience replay buffer. Transitions are stored encoded
+ * (state index, action column, reward, next state index) in primitive
+ * arrays, and the oldest transition is overwritten when the buffer is full.
+ *
+ * Sampling is either uniform or proportional to the transition priority.
+ * Priorities are kept in a sum tree, so prioritized sampling and priority
+ * updates cost O(log capacity) and never allocate.
+ *
+ * @author Raul Castilla Bravo.
+ */
+public class ReplayBuffer {
+
+	/**
+	 * Private attributes.
+	 */
+	private final int capacity;
+	private final boolean prioritized;
+
+	private final int[] states;
+	private final int[] actions;
+	private final float[] rewards;
+	private final int[] nextStates;
+
+	private final double[] priorityTree;
+	private double maxPriority;
+
+	private int size;
+	private int next;
+	private Random randomGenerator;
+
+	private static final double MINPRIORITY = 1e-3;
+	private static final double PRIORITYEXPONENT = 0.6;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity maximum number of transitions, rounded up to a power of two.
+	 * @param prioritized true to sample proportionally to the priorities.
+	 */
+	public ReplayBuffer(int capacity, boolean prioritized) {
+		this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.prioritized = prioritized;
+
+		states = new int[this.capacity];
+		actions = new int[this.capacity];
+		rewards = new float[this.capacity];
+		nextStates = new int[this.capacity];
+
+		priorityTree = new double[2 * this.capacity];
+		maxPriority = 1;
+		randomGenerator = new Random();
+	}
+
+
+	/**
+	 * Adds a transition. New transitions get the highest priority seen so
+	 * far, so they are replayed at least once soon.
+	 *
+	 * @param state previous state index.
+	 * @param action action column.
+	 * @param reward reward obtained.
+	 * @param nextState current state index.
+	 */
+	public void add(int state, int action, float reward, int nextState) {
+		states[next] = state;
+		actions[next] = action;
+		rewards[next] = reward;
+		nextStates[next] = nextState;
+		setPriorityAt(next, maxPriority);
+
+		next = (next + 1) & (capacity - 1);
+		if(size < capacity) size++;
+	}
+
+
+	/**
+	 * Picks a transition to replay.
+	 *
+	 * @return transition position.
+	 */
+	public int sample() {
+		if(!prioritized) {
+			return randomGenerator.nextInt(size);
+		}
+
+		double value = randomGenerator.nextDouble() * priorityTree[1];
+		int node = 1;
+		while(node < capacity) {
+			int left = 2 * node;
+			if(value < priorityTree[left]) {
+				node = left;
+			} else {
+				value -= priorityTree[left];
+				node = left + 1;
+			}
+		}
+
+		int position = node - capacity;
+		// Rounding may end in an empty leaf.
+		return position < size ? position : randomGenerator.nextInt(size);
+	}
+
+
+	/**
+	 * Updates the priority of a transition from its temporal difference error.
+	 *
+	 * @param position transition position.
+	 * @param tdError temporal difference error of the last update.
+	 */
+	public void updatePriority(int position, float tdError) {
+		if(!prioritized) return;
+
+		double priority = Math.pow(Math.abs(tdError) + MINPRIORITY, PRIORITYEXPONENT);
+		if(priority > maxPriority) maxPriority = priority;
+		setPriorityAt(position, priority);
+	}
+
+
+	/**
+	 * Sets a leaf of the sum tree and updates its ancestors.
+	 *
+	 * @param position transition position.
+	 * @param priority new priority.
+	 */
+	private void setPriorityAt(int position, double priority) {
+		if(!prioritized) return;
+
+		int node = position + capacity;
+		double delta = priority - priorityTree[node];
+		while(node >= 1) {
+			priorityTree[node] += delta;
+			node /= 2;
+		}
+	}
+
+
+	/**
+	 * @return number of stored transitions.
+	 */
+	public int size() {
+		return size;
+	}
+
+
+	/**
+	 * @param position transition position.
+	 * @return previous state index.
+	 */
+	public int getState(int position) {
+		return states[position];
+	}
+
+
+	/**
+	 * @param position transition position.
+	 * @return action column.
+	 */
+	public int getAction(int position) {
+		return actions[position];
+	}
+
+
+	/**
+	 * @param position transition position.
+	 * @return reward.
+	 */
+	public float getReward(int position) {
+		return rewards[position];
+	}
+
+
+	/**
+	 * @param position transition position.
+	 * @return current state index.
+	 */
+	public int getNextState(int position) {
+		return nextStates[position];
+	}
+}
@@ -29,6 +29,11 @@ public class State {
 	public static final int FALSE = 0;
 	public static final int TRUE = 1;
 	
+	public static final int NUMSTATES = NUMZONEVALUES * NUMZONEVALUES * 
+										NUMBOOLEANVALUES * NUMBOOLEANVALUES;
+	
+	public static final int ENCODINGVERSION = 2;     // 1 = compass (V1), 2 = goal (V2).
+	
 	public static final int NONE = -1;
 	public static final int ERROR = -99999;
 	
@@ -79,16 +84,36 @@ public class State {
 	}
 	
 	
+	/**
+	 * Encodes the state as a mixed-radix number over the attribute ranges.
+	 * The result is the row of the state in the Qtable and matches the
+	 * order of the states built by StateGenerator.
+	 * 
+	 * @return state index in [0, NUMSTATES).
+	 */
+	public int getIndex() {
+		return ((fast * NUMBOOLEANVALUES + goal) * NUMZONEVALUES + displacement) * NUMZONEVALUES + orientation;
+	}
+	
+	
 	/**
 	 * Returns true if the attributes are exactly the same.
 	 */
 	@Override
 	public boolean equals(Object obj) {
-		State aux = (State) obj;
-		return (this.orientation == aux.orientation &&
-				this.displacement == aux.displacement &&
-				this.goal == aux.goal &&
-				this.fast == aux.fast);
+		if(!(obj instanceof State)) {
+			return false;
+		}
+		return getIndex() == ((State) obj).getIndex();
+	}
+	
+	
+	/**
+	 * Returns the state index, which is a perfect hash of the attributes.
+	 */
+	@Override
+	public int hashCode() {
+		return getIndex();
 	}
 
 	
@@ -0,0 +1,275 @@
+package raulcastilla215alu.mytools;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import tools.Vector2d;
+
+/**
+ * Writes one record per game tick without blocking the agent. The agent
+ * thread pushes records into a bounded ring buffer and a background thread
+ * drains it to a buffered file. When the buffer is full the record is
+ * dropped and counted. The background thread sleeps while the buffer is
+ * empty, and record() wakes it up.
+ *
+ * The ring buffer is single-producer single-consumer: record() must always
+ * be called from the same thread.
+ *
+ * @author Raul Castilla Bravo.
+ */
+public class TraceWriter {
+
+	/**
+	 * Output formats.
+	 *   TEXT: multi-line format of AgentState.toString().
+	 *   CSV: one row per tick.
+	 *   BINARY: one fixed-size record of RECORDSIZE bytes per tick.
+	 */
+	public enum Format { TEXT, CSV, BINARY }
+
+	public static final int DEFAULTCAPACITY = 4096;
+	public static final int RECORDSIZE = 20;
+	public static final String CSVHEADER = "tick,orientation,displacement,goal,fast,agentX,agentY,portalX,portalY,orientationDegrees\n";
+
+	/**
+	 * Private attributes.
+	 */
+	private final String path;
+	private final Format format;
+	private final int mask;
+
+	private final int[] ticks;
+	private final byte[] orientations;
+	private final byte[] displacements;
+	private final byte[] goals;
+	private final byte[] fasts;
+	private final short[] agentX;
+	private final short[] agentY;
+	private final short[] portalX;
+	private final short[] portalY;
+	private final float[] orientationDegrees;
+
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	private volatile boolean running;
+	private volatile boolean sleeping;
+	private Thread drainer;
+
+
+	/**
+	 * Constructor. Starts the background thread, which opens the file
+	 * in append mode.
+	 *
+	 * @param path trace file path.
+	 * @param format output format.
+	 */
+	public TraceWriter(String path, Format format) {
+		this(path, format, DEFAULTCAPACITY);
+	}
+
+
+	/**
+	 * Constructor. Starts the background thread, which opens the file
+	 * in append mode.
+	 *
+	 * @param path trace file path.
+	 * @param format output format.
+	 * @param capacity number of records of the ring buffer, rounded up to a
+	 * power of two.
+	 */
+	public TraceWriter(String path, Format format, int capacity) {
+		this.path = path;
+		this.format = format;
+
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.mask = size - 1;
+
+		ticks = new int[size];
+		orientations = new byte[size];
+		displacements = new byte[size];
+		goals = new byte[size];
+		fasts = new byte[size];
+		agentX = new short[size];
+		agentY = new short[size];
+		portalX = new short[size];
+		portalY = new short[size];
+		orientationDegrees = new float[size];
+
+		running = true;
+		drainer = new Thread(this::drainLoop, "TraceWriter");
+		drainer.setDaemon(true);
+		drainer.start();
+	}
+
+
+	/**
+	 * Pushes a record with the agent state, and wakes the background thread
+	 * up if it is sleeping. Never blocks and never allocates.
+	 *
+	 * @param tick game tick.
+	 * @param state current agent state.
+	 * @return false if the buffer was full and the record was dropped.
+	 */
+	public boolean record(int tick, AgentState state) {
+		long t = tail.get();
+		if(t - head.get() > mask) {
+			dropped.incrementAndGet();
+			return false;
+		}
+
+		int slot = (int) (t & mask);
+		ticks[slot] = tick;
+		orientations[slot] = (byte) state.orientation;
+		displacements[slot] = (byte) state.displacement;
+		goals[slot] = (byte) state.goal;
+		fasts[slot] = (byte) state.fast;
+
+		Vector2d agentPos = state.getAgentPos();
+		Vector2d portalPos = state.getPortalPos();
+		agentX[slot] = (short) agentPos.x;
+		agentY[slot] = (short) agentPos.y;
+		portalX[slot] = (short) (portalPos == null ? State.NONE : portalPos.x);
+		portalY[slot] = (short) (portalPos == null ? State.NONE : portalPos.y);
+		orientationDegrees[slot] = state.getOrientationDegrees();
+
+		// The record is published before reading sleeping, so the background 
+		// thread either sees it or is woken up.
+		tail.set(t + 1);
+		if(sleeping) {
+			LockSupport.unpark(drainer);
+		}
+		return true;
+	}
+
+
+	/**
+	 * @return number of records dropped because the buffer was full.
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+
+	/**
+	 * Stops the background thread after writing the pending records.
+	 */
+	public void close() {
+		running = false;
+		LockSupport.unpark(drainer);
+		try {
+			drainer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Background thread body.
+	 */
+	private void drainLoop() {
+		File file = new File(path);
+		boolean newFile = !file.exists() || file.length() == 0;
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+			if(newFile && format == Format.CSV) {
+				out.writeBytes(CSVHEADER);
+			}
+
+			while(running) {
+				if(drain(out) == 0) {
+					out.flush();
+					sleep();
+				}
+			}
+			drain(out);
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Sleeps until record() or close() wakes the thread up. The buffer is 
+	 * checked again after setting sleeping, so no record is missed.
+	 */
+	private void sleep() {
+		sleeping = true;
+		if(running && tail.get() == head.get()) {
+			LockSupport.park(this);
+		}
+		sleeping = false;
+	}
+
+
+	/**
+	 * Writes every record available in the buffer.
+	 *
+	 * @param out output stream.
+	 * @return number of records written.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private int drain(DataOutputStream out) throws IOException {
+		long h = head.get();
+		long t = tail.get();
+
+		for(long i = h; i < t; i++) {
+			write(out, (int) (i & mask));
+		}
+
+		head.lazySet(t);
+		return (int) (t - h);
+	}
+
+
+	/**
+	 * Writes one record.
+	 *
+	 * @param out output stream.
+	 * @param slot buffer position of the record.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private void write(DataOutputStream out, int slot) throws IOException {
+		switch(format) {
+			case BINARY:
+				out.writeInt(ticks[slot]);
+				out.writeByte(orientations[slot]);
+				out.writeByte(displacements[slot]);
+				out.writeByte(goals[slot]);
+				out.writeByte(fasts[slot]);
+				out.writeShort(agentX[slot]);
+				out.writeShort(agentY[slot]);
+				out.writeShort(portalX[slot]);
+				out.writeShort(portalY[slot]);
+				out.writeFloat(orientationDegrees[slot]);
+				break;
+
+			case CSV:
+				out.writeBytes(ticks[slot] + "," + orientations[slot] + "," + displacements[slot] + "," +
+							   goals[slot] + "," + fasts[slot] + "," + agentX[slot] + "," + agentY[slot] + "," +
+							   portalX[slot] + "," + portalY[slot] + "," + orientationDegrees[slot] + "\n");
+				break;
+
+			case TEXT:
+				out.writeBytes("Ticks = " + ticks[slot] + "\n" +
+							   "Orientation = " + orientations[slot] + "\n" +
+							   "Displacement = " + displacements[slot] + "\n" +
+							   "Goal = " + (goals[slot] == State.TRUE) + "\n" +
+							   "Fast = " + (fasts[slot] == State.TRUE) + "\n" +
+							   "Agent position = " + (double) agentX[slot] + " : " + (double) agentY[slot] + "\n" +
+							   "Portal position = " + (portalX[slot] == State.NONE ? "null" :
+								   (double) portalX[slot] + " : " + (double) portalY[slot]) + "\n" +
+							   "Orientation value = " + orientationDegrees[slot] + "\n" +
+							   "************************** \n\n");
+				break;
+		}
+	}
+}
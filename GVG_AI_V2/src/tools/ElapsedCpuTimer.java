@@ -15,15 +15,25 @@ public class ElapsedCpuTimer {
     ThreadMXBean bean = ManagementFactory.getThreadMXBean();
     long oldTime;
     long maxTime;
+    boolean wallTime;
 
     public ElapsedCpuTimer() {
         oldTime = getTime();
     }
 
+    /**
+     * Creates a timer.
+     * @param wallTime true to measure wall time (System.nanoTime) instead of thread CPU time.
+     */
+    public ElapsedCpuTimer(boolean wallTime) {
+        this.wallTime = wallTime;
+        oldTime = getTime();
+    }
+
 
     public ElapsedCpuTimer copy()
     {
-        ElapsedCpuTimer newCpuTimer = new ElapsedCpuTimer();
+        ElapsedCpuTimer newCpuTimer = new ElapsedCpuTimer(this.wallTime);
         newCpuTimer.maxTime = this.maxTime;
         newCpuTimer.oldTime = this.oldTime;
         newCpuTimer.bean = this.bean;
@@ -71,7 +81,7 @@ public class ElapsedCpuTimer {
 
     private long getCpuTime() {
 
-        if(CompetitionParameters.OS_WIN)
+        if(wallTime || CompetitionParameters.OS_WIN)
             return System.nanoTime();
 
         if (bean.isCurrentThreadCpuTimeSupported()) {
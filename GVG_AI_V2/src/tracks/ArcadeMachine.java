@@ -13,6 +13,8 @@ import core.competition.CompetitionParameters;
 import core.game.Game;
 import core.game.StateObservation;
 import core.game.StateObservationMulti;
+import core.game.StateObservationPool;
+import core.logging.Logger;
 import core.player.AbstractMultiPlayer;
 import core.player.AbstractPlayer;
 import core.player.Player;
@@ -160,12 +162,21 @@ public class ArcadeMachine {
 			}
 		}
 
-		// Then, play the game.
+		// Then, play the game. In turbo mode, the logger is off while it is played.
 		double[] score;
-		if (visuals)
-			score = toPlay.playGame(players, randomSeed, anyHuman, playerID);
-		else
-			score = toPlay.runGame(players, randomSeed);
+		boolean loggerActive = Logger.getInstance().active;
+		if (CompetitionParameters.TURBO)
+			Logger.getInstance().active = false;
+		try {
+			if (visuals)
+				score = toPlay.playGame(players, randomSeed, anyHuman, playerID);
+			else
+				score = toPlay.runGame(players, randomSeed);
+		} finally {
+			Logger.getInstance().active = loggerActive;
+		}
+		if (toPlay.isTurbo())
+			System.out.printf("Turbo: %.1f ticks/s%n", toPlay.getTicksPerSecond());
 
 		// Finally, when the game is over, we need to tear the players down.
 		ArcadeMachine.tearPlayerDown(toPlay, players, actionFile, randomSeed, true);
@@ -414,95 +425,106 @@ public class ArcadeMachine {
 	}
 	performance = new StatSummary();
 
-	for (String level_file : level_files) {
-	    for (int i = 0; i < level_times; ++i) {
-		if (VERBOSE)
-		    System.out.println(" ** Playing game " + game_file + ", level " + level_file + " (" + (i + 1) + "/"
-			    + level_times + ") **");
+	// In turbo mode, the logger is off while the games are played.
+	boolean loggerActive = Logger.getInstance().active;
+	if (CompetitionParameters.TURBO)
+	    Logger.getInstance().active = false;
 
-		// Determine the random seed, different for each game to be
-		// played.
-		int randomSeed = new Random().nextInt();
+	try {
+	    for (String level_file : level_files) {
+		for (int i = 0; i < level_times; ++i) {
+		    if (VERBOSE)
+			System.out.println(" ** Playing game " + game_file + ", level " + level_file + " (" + (i + 1) + "/"
+				+ level_times + ") **");
 
-		// build the level in the game.
-		toPlay.buildLevel(level_file, randomSeed);
+		    // Determine the random seed, different for each game to be
+		    // played.
+		    int randomSeed = new Random().nextInt();
 
-		String filename = recordActions ? actionFiles[levelIdx * level_times + i] : null;
+		    // build the level in the game.
+		    toPlay.buildLevel(level_file, randomSeed);
 
-		// Warm the game up.
-		ArcadeMachine.warmUp(toPlay, CompetitionParameters.WARMUP_TIME);
+		    String filename = recordActions ? actionFiles[levelIdx * level_times + i] : null;
 
-		// Create the player.
-		String[] agentNames = agentName.split(" ");
-		int no_players = agentNames.length;
+		    // Warm the game up.
+		    ArcadeMachine.warmUp(toPlay, CompetitionParameters.WARMUP_TIME);
 
-		int disqCount = 0; // count how many players disqualified
-		double[] score = new double[no_players]; // store scores for all
-							 // the players
+		    // Create the player.
+		    String[] agentNames = agentName.split(" ");
+		    int no_players = agentNames.length;
 
-		Player[] players;
-		if (no_players > 1) {
-		    // multi player games
-		    players = new AbstractMultiPlayer[no_players];
-		} else {
-		    // single player games
-		    players = new AbstractPlayer[no_players];
-		}
+		    int disqCount = 0; // count how many players disqualified
+		    double[] score = new double[no_players]; // store scores for all
+							     // the players
 
-		for (int j = 0; j < no_players; j++) {
+		    Player[] players;
 		    if (no_players > 1) {
-			// multi player
-			players[j] = ArcadeMachine.createMultiPlayer(agentNames[j], filename,
-				toPlay.getObservationMulti(i), randomSeed, j, false);
+			// multi player games
+			players = new AbstractMultiPlayer[no_players];
 		    } else {
-			// single player
-			players[j] = ArcadeMachine.createPlayer(agentNames[j], filename, toPlay.getObservation(),
-				randomSeed, false);
-		    }
-		    score[j] = -1;
-		    if (players[j] == null) {
-				// Something went wrong in the constructor, controller
-				// disqualified
-				// toPlay.disqualify(j);
-				toPlay.getAvatars()[j].disqualify(true);
-
-				disqCount++;
+			// single player games
+			players = new AbstractPlayer[no_players];
 		    }
-		}
 
-		// Play the game if at least 2 players in multiplayer games or
-		// at least 1 in single player.
-		// Get array of scores back.
-		if ((no_players - disqCount) >= toPlay.no_players) {
-		    score = toPlay.runGame(players, randomSeed);
-		    //score = toPlay.playGame(players, randomSeed, false, 0);
-		    toPlay.printResult();
-		} else {
-		    // Get the score for the result.
-		    score = toPlay.handleResult();
-		    toPlay.printResult();
-		}
+		    for (int j = 0; j < no_players; j++) {
+			if (no_players > 1) {
+			    // multi player
+			    players[j] = ArcadeMachine.createMultiPlayer(agentNames[j], filename,
+				    toPlay.getObservationMulti(i), randomSeed, j, false);
+			} else {
+			    // single player
+			    players[j] = ArcadeMachine.createPlayer(agentNames[j], filename, toPlay.getObservation(),
+				    randomSeed, false);
+			}
+			score[j] = -1;
+			if (players[j] == null) {
+				    // Something went wrong in the constructor, controller
+				    // disqualified
+				    // toPlay.disqualify(j);
+				    toPlay.getAvatars()[j].disqualify(true);
+
+				    disqCount++;
+			}
+		    }
 
-		// Finally, when the game is over, we need to tear the players
-		// down.
-		if (!ArcadeMachine.tearPlayerDown(toPlay, players, filename, randomSeed, true)) {
-		    score = toPlay.handleResult();
-		    toPlay.printResult();
-		}
+		    // Play the game if at least 2 players in multiplayer games or
+		    // at least 1 in single player.
+		    // Get array of scores back.
+		    if ((no_players - disqCount) >= toPlay.no_players) {
+			score = toPlay.runGame(players, randomSeed);
+			//score = toPlay.playGame(players, randomSeed, false, 0);
+			toPlay.printResult();
+			if (CompetitionParameters.TURBO)
+			    System.out.printf("Turbo: %.1f ticks/s%n", toPlay.getTicksPerSecond());
+		    } else {
+			// Get the score for the result.
+			score = toPlay.handleResult();
+			toPlay.printResult();
+		    }
 
-		// Get players stats
-		for (Player player : players)
-		    if (player != null) {
-			int id = player.getPlayerID();
-			scores[id].add(score[id]);
-			victories[id].add(toPlay.getWinner(id) == Types.WINNER.PLAYER_WINS ? 1 : 0);
+		    // Finally, when the game is over, we need to tear the players
+		    // down.
+		    if (!ArcadeMachine.tearPlayerDown(toPlay, players, filename, randomSeed, true)) {
+			score = toPlay.handleResult();
+			toPlay.printResult();
 		    }
 
-		// reset the game.
-		toPlay.reset();
-	    }
+		    // Get players stats
+		    for (Player player : players)
+			if (player != null) {
+			    int id = player.getPlayerID();
+			    scores[id].add(score[id]);
+			    victories[id].add(toPlay.getWinner(id) == Types.WINNER.PLAYER_WINS ? 1 : 0);
+			}
 
-	    levelIdx++;
+		    // reset the game.
+		    toPlay.reset();
+		}
+
+		levelIdx++;
+	    }
+	} finally {
+	    Logger.getInstance().active = loggerActive;
 	}
 
 	String vict = "", sc = "";
@@ -707,10 +729,14 @@ public class ArcadeMachine {
      *            game to be warmed up.
      * @param howLong
      *            for how long the warming up process must last (in
-     *            milliseconds).
+     *            milliseconds). Turbo games are not timed, so they are not
+     *            warmed up.
      */
 		@SuppressWarnings("unchecked")
     public static void warmUp(Game toPlay, long howLong) {
+        if (CompetitionParameters.TURBO)
+            return;
+
         ElapsedCpuTimer ect = new ElapsedCpuTimer();
         ect.setMaxTimeMillis(howLong);
         int playoutLength = 10;
@@ -744,7 +770,7 @@ public class ArcadeMachine {
             for (int i = 0; i < no_players; i++) {
             for (Types.ACTIONS action : actions[i]) {
 
-                StateObservation stCopy = stateObs.copy();
+                StateObservation stCopy = StateObservationPool.copy(stateObs);
                 ElapsedCpuTimer ectAdv = new ElapsedCpuTimer();
 
                 Types.ACTIONS[] acts = new Types.ACTIONS[no_players];
@@ -791,6 +817,7 @@ public class ArcadeMachine {
                     ss2.add(ectAdv.elapsedNanos());
                 }
                 }
+                StateObservationPool.release(stCopy);
             }
 
             finish = ect.exceededMaxTime()
@@ -813,6 +840,7 @@ public class ArcadeMachine {
 
         // Reset input to delete warm-up effects.
         Game.ki.resetAll();
+        StateObservationPool.clear();
     }
 
     /**
@@ -833,6 +861,9 @@ public class ArcadeMachine {
      */
     public static boolean tearPlayerDown(Game toPlay, Player[] players, String actionFile, int randomSeed,
 	    boolean record) {
+        // The game is over, so the states pooled by the players of this thread are not needed.
+        StateObservationPool.clear();
+
         // This is finished, no more actions, close the writer.
         if (toPlay.no_players > 1) {
             // multi player, write actions to files.
@@ -0,0 +1,275 @@
+package tracks;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import core.competition.CompetitionParameters;
+import tracks.TournamentMachine.Job;
+import tracks.TournamentMachine.Result;
+import tracks.TournamentMachine.ResultLine;
+import tracks.TournamentMachine.ResultSink;
+
+/**
+ * Plays tournaments (see TournamentMachine) on several JVMs of this machine, for agents
+ * that cannot share one: the ones with mutable static state, or that call System.exit.
+ *
+ * The jobs are dealt to the shards in turns, so each shard plays a part of the seeds and
+ * levels of every game. Each shard is a child JVM, with the classpath of this one, that
+ * plays its jobs in order on one thread and streams their results to a JSON lines file.
+ * If a shard stops before playing all its jobs, or it spends more than JOBTIMEOUT minutes
+ * without finishing a job, it is started again with the jobs left. A job that stops its shard
+ * MAX_RETRIES + 1 times in a row is recorded with an error and skipped. The results of
+ * the shards are written to a single results file, in the order of the jobs, so the
+ * report is the same as the one of TournamentMachine.
+ *
+ * The files of the shards (jobs, results and output of the JVMs) are kept in the directory
+ * "[results file].shards".
+ *
+ * Usage: ShardedMachine [games file] [levels] [seeds] [shards] [results file] [agents...]
+ */
+public class ShardedMachine {
+    public static final boolean VERBOSE = false;
+
+    /**
+     * Times a shard is started again, without playing any job, before its next job is skipped.
+     */
+    public static final int MAX_RETRIES = 2;
+
+    /**
+     * Minutes a shard is given to finish its next job, before it is stopped.
+     */
+    public static final int JOBTIMEOUT = 10;
+
+    /**
+     * Milliseconds between two checks of the progress of a shard.
+     */
+    public static final int POLLMILLIS = 1000;
+
+    /**
+     * First argument of the child JVMs: ShardedMachine -shard [jobs file] [results file] [turbo].
+     */
+    public static final String SHARDFLAG = "-shard";
+
+    /**
+     * Plays a tournament on child JVMs.
+     * @param jobs jobs to play, in the order of the results.
+     * @param numShards number of child JVMs.
+     * @param resultsFile file the results are written to, as JSON lines if its name ends
+     *                    in ".jsonl" and as CSV otherwise.
+     * @return result of each job, in the order of the jobs.
+     */
+    public static Result[] runTournament(List<Job> jobs, int numShards, String resultsFile) throws IOException {
+        File dir = new File(resultsFile + ".shards");
+        Files.createDirectories(dir.toPath());
+
+        // Deal the jobs to the shards, keeping their positions in the list.
+        numShards = Math.max(1, Math.min(numShards, jobs.size()));
+        IdentityHashMap<Job, Integer> positions = new IdentityHashMap<>();
+        ArrayList<ArrayList<Job>> shards = new ArrayList<>();
+        for (int s = 0; s < numShards; s++)
+            shards.add(new ArrayList<>());
+        for (Job job : jobs) {
+            shards.get(positions.size() % numShards).add(job);
+            positions.put(job, positions.size());
+        }
+
+        ResultSink sink = new ResultSink(jobs.size(), resultsFile);
+        ExecutorService pool = Executors.newFixedThreadPool(numShards);
+        try {
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for (int s = 0; s < numShards; s++) {
+                int shard = s;
+                futures.add(pool.submit(() -> {
+                    runShard(shard, shards.get(shard), dir, sink, positions);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            sink.close();
+        }
+
+        return sink.results;
+    }
+
+    /**
+     * Plays the jobs of a shard on child JVMs, one after the other, until all of them are
+     * played or skipped, and adds their results to the sink.
+     */
+    private static void runShard(int shard, List<Job> jobs, File dir, ResultSink sink,
+                                 IdentityHashMap<Job, Integer> positions) throws IOException, InterruptedException {
+        ArrayList<Job> pending = new ArrayList<>(jobs);
+        File log = new File(dir, "shard" + shard + ".log");
+        int attempt = 0, failures = 0;
+
+        while (!pending.isEmpty()) {
+            File jobsFile = new File(dir, "shard" + shard + "_" + attempt + ".jobs");
+            File shardResults = new File(dir, "shard" + shard + "_" + attempt + ".jsonl");
+            writeJobs(jobsFile, pending);
+            // Results of an earlier tournament with the same files must not be read as this one's.
+            Files.deleteIfExists(shardResults.toPath());
+
+            ProcessBuilder builder = new ProcessBuilder(
+                    System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                    "-cp", System.getProperty("java.class.path"), ShardedMachine.class.getName(),
+                    SHARDFLAG, jobsFile.getPath(), shardResults.getPath(), "" + CompetitionParameters.TURBO);
+            builder.redirectErrorStream(true);
+            builder.redirectOutput(ProcessBuilder.Redirect.appendTo(log));
+            Process process = builder.start();
+            String stopped;
+            try {
+                if (waitForShard(process, shardResults)) {
+                    stopped = "exit code " + process.exitValue();
+                } else {
+                    process.destroyForcibly().waitFor();
+                    stopped = "timed out";
+                }
+            } finally {
+                process.destroyForcibly();
+            }
+
+            // Results are written in the order of the jobs: the k-th line is the result of the k-th job.
+            // A line of another job ends the results, as a line that is incomplete.
+            int played = 0;
+            if (shardResults.exists()) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(shardResults))) {
+                    String line;
+                    while (played < pending.size() && (line = reader.readLine()) != null) {
+                        Result read = ResultLine.fromJson(line);
+                        Job job = pending.get(played);
+                        if (read == null || read.job.index != job.index)
+                            break;
+                        played++;
+                        Result result = new Result(job);
+                        result.scores = read.scores;
+                        result.victories = read.victories;
+                        result.gameTicks = read.gameTicks;
+                        result.error = read.error;
+                        sink.add(positions.get(job), result);
+                    }
+                }
+            }
+            pending = new ArrayList<>(pending.subList(played, pending.size()));
+            attempt++;
+
+            if (pending.isEmpty())
+                break;
+            failures = played == 0 ? failures + 1 : 1;
+            System.out.println("Shard " + shard + " stopped (" + stopped + ") after " + played
+                    + " jobs, " + pending.size() + " left. See " + log.getPath());
+            if (failures > MAX_RETRIES) {
+                Result result = new Result(pending.remove(0));
+                result.error = "Shard stopped " + failures + " times in this job (" + stopped + ")";
+                sink.add(positions.get(result.job), result);
+                failures = 0;
+            }
+        }
+    }
+
+    /**
+     * Waits for a shard while it makes progress: the deadline is JOBTIMEOUT minutes after
+     * the last complete line written to its results file, or after its start.
+     * @return true if the shard ended, false if it missed the deadline.
+     */
+    private static boolean waitForShard(Process process, File shardResults) throws IOException, InterruptedException {
+        long timeout = TimeUnit.MINUTES.toNanos(JOBTIMEOUT);
+        long deadline = System.nanoTime() + timeout;
+        long checked = 0;
+        byte[] buffer = new byte[8192];
+
+        while (!process.waitFor(POLLMILLIS, TimeUnit.MILLISECONDS)) {
+            // Look for new line ends after the part of the file already checked.
+            boolean progress = false;
+            if (shardResults.length() > checked) {
+                try (RandomAccessFile file = new RandomAccessFile(shardResults, "r")) {
+                    file.seek(checked);
+                    int read;
+                    while ((read = file.read(buffer)) > 0) {
+                        for (int i = 0; i < read; i++)
+                            progress |= buffer[i] == '\n';
+                        checked += read;
+                    }
+                }
+            }
+            if (progress)
+                deadline = System.nanoTime() + timeout;
+            else if (System.nanoTime() - deadline > 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the jobs of a shard, one per line, separated by tabs.
+     */
+    private static void writeJobs(File file, List<Job> jobs) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (Job job : jobs) {
+                writer.write(job.index + "\t" + job.gameFile + "\t" + job.levelFile + "\t" + job.seed + "\t" + job.agentNames);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Reads the jobs of a shard.
+     */
+    private static ArrayList<Job> readJobs(String file) throws IOException {
+        ArrayList<Job> jobs = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                jobs.add(new Job(Integer.parseInt(fields[0]), fields[1], fields[2], Integer.parseInt(fields[3]), fields[4]));
+            }
+        }
+        return jobs;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals(SHARDFLAG)) {
+            // Child JVM: play the jobs of the shard in order.
+            CompetitionParameters.TURBO = Boolean.parseBoolean(args[3]);
+            TournamentMachine.runTournament(readJobs(args[1]), 1, args[2]);
+            return;
+        }
+
+        String gamesFile = args.length > 0 ? args[0] : TournamentMachine.DEFAULTGAMES;
+        int numLevels = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int numSeeds = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int numShards = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        String resultsFile = args.length > 4 ? args[4] : "tournament.csv";
+        String[] agentNames = new String[]{TournamentMachine.DEFAULTAGENT};
+        if (args.length > 5) {
+            agentNames = new String[args.length - 5];
+            System.arraycopy(args, 5, agentNames, 0, agentNames.length);
+        }
+
+        CompetitionParameters.TURBO = true;
+        Result[] results = runTournament(TournamentMachine.createJobs(gamesFile, numLevels, numSeeds, agentNames),
+                numShards, resultsFile);
+
+        TournamentMachine.printSummary(results);
+    }
+}
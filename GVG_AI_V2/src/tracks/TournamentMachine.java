@@ -0,0 +1,435 @@
+package tracks;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import core.competition.CompetitionParameters;
+import core.game.Game;
+import core.logging.Logger;
+import core.player.AbstractMultiPlayer;
+import core.player.AbstractPlayer;
+import core.player.Player;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLParser;
+import core.vgdl.VGDLRegistry;
+import ontology.Types;
+import tools.StatSummary;
+import tools.Utils;
+import tools.com.google.gson.Gson;
+import tools.com.google.gson.GsonBuilder;
+import tools.com.google.gson.JsonSyntaxException;
+
+/**
+ * Plays tournaments of (game, level, seed, agent) jobs on a pool of threads.
+ *
+ * Every job parses its own Game and plays it headless, as ArcadeMachine.runGames, with
+ * the seed of the job instead of a random one. The global VGDL registries hold the sprites
+ * of one game at a time, so the games are played one after the other: each one is parsed
+ * first on the calling thread, which registers its sprites and warms it up, and then its
+ * jobs are played in parallel while the registries are only read.
+ *
+ * Results are written in the order of the jobs, as they finish, and the statistics are
+ * merged in that order too, so a list of jobs gives the same output with any number of
+ * threads, as long as the agents are deterministic for a seed. Agents are created on the
+ * worker threads, so they must not share mutable static state. Timed agents may be
+ * disqualified at different times if the threads compete for the cores, which
+ * CompetitionParameters.TURBO avoids by removing the time limits.
+ *
+ * Usage: TournamentMachine [games file] [levels] [seeds] [threads] [results file] [agents...]
+ */
+public class TournamentMachine {
+    public static final boolean VERBOSE = false;
+
+    public static final String DEFAULTGAMES = "examples/all_games_sp.csv";
+    public static final String DEFAULTAGENT = "tracks.singlePlayer.simple.sampleRandom.Agent";
+
+    /**
+     * A game to be played in a tournament.
+     */
+    public static class Job {
+        public final int index;
+        public final String gameFile;
+        public final String levelFile;
+        public final int seed;
+        public final String agentNames;
+
+        /**
+         * Creates a job.
+         * @param index position of the job in the tournament.
+         * @param gameFile game description file.
+         * @param levelFile level file.
+         * @param seed random seed of the game and the agents.
+         * @param agentNames agents, separated by spaces in multi player games.
+         */
+        public Job(int index, String gameFile, String levelFile, int seed, String agentNames) {
+            this.index = index;
+            this.gameFile = gameFile;
+            this.levelFile = levelFile;
+            this.seed = seed;
+            this.agentNames = agentNames;
+        }
+    }
+
+    /**
+     * Result of a job: score and victory of each player, game ticks played, and the
+     * error that stopped the job, if any (null otherwise).
+     */
+    public static class Result {
+        public final Job job;
+        public double[] scores;
+        public int[] victories;
+        public int gameTicks;
+        public String error;
+
+        public Result(Job job) {
+            this.job = job;
+        }
+    }
+
+    /**
+     * Creates the jobs of a tournament: every agent plays every level of every game with every seed.
+     * @param gameFiles game description files.
+     * @param levelFiles level files of each game.
+     * @param seeds seeds to play each level with.
+     * @param agentNames agents (separated by spaces in multi player games).
+     * @return jobs, ordered by game, level, seed and agent.
+     */
+    public static ArrayList<Job> createJobs(String[] gameFiles, String[][] levelFiles, int[] seeds, String[] agentNames) {
+        ArrayList<Job> jobs = new ArrayList<>();
+        for (int g = 0; g < gameFiles.length; g++)
+            for (String levelFile : levelFiles[g])
+                for (int seed : seeds)
+                    for (String agentName : agentNames)
+                        jobs.add(new Job(jobs.size(), gameFiles[g], levelFile, seed, agentName));
+        return jobs;
+    }
+
+    /**
+     * Creates the jobs of a tournament on the games of a games file (as examples/all_games_sp.csv),
+     * with levels 0 to numLevels - 1 of each game and seeds 0 to numSeeds - 1.
+     * @param gamesFile games file.
+     * @param numLevels number of levels of each game.
+     * @param numSeeds number of seeds.
+     * @param agentNames agents (separated by spaces in multi player games).
+     * @return jobs, ordered by game, level, seed and agent.
+     */
+    public static ArrayList<Job> createJobs(String gamesFile, int numLevels, int numSeeds, String[] agentNames) {
+        String[][] games = Utils.readGames(gamesFile);
+        String[] gameFiles = new String[games.length];
+        String[][] levelFiles = new String[games.length][numLevels];
+        for (int g = 0; g < games.length; g++) {
+            gameFiles[g] = games[g][0];
+            for (int l = 0; l < numLevels; l++)
+                levelFiles[g][l] = games[g][0].replace(games[g][1], games[g][1] + "_lvl" + l);
+        }
+        int[] seeds = new int[numSeeds];
+        for (int s = 0; s < numSeeds; s++)
+            seeds[s] = s;
+        return createJobs(gameFiles, levelFiles, seeds, agentNames);
+    }
+
+    /**
+     * Plays a tournament.
+     * @param jobs jobs to play, in the order of the results.
+     * @param numThreads number of threads that play the jobs.
+     * @param resultsFile file the results are written to, as JSON lines if its name ends
+     *                    in ".jsonl" and as CSV otherwise. Accepts null if not required.
+     * @return result of each job, in the order of the jobs.
+     */
+    public static Result[] runTournament(List<Job> jobs, int numThreads, String resultsFile) throws IOException {
+        boolean loggerActive = Logger.getInstance().active;
+        Logger.getInstance().active = false;
+
+        // Jobs of each game, in order of appearance, and their positions in the list.
+        LinkedHashMap<String, ArrayList<Job>> gameJobs = new LinkedHashMap<>();
+        IdentityHashMap<Job, Integer> positions = new IdentityHashMap<>();
+        for (Job job : jobs) {
+            gameJobs.computeIfAbsent(job.gameFile, k -> new ArrayList<>()).add(job);
+            positions.put(job, positions.size());
+        }
+
+        ResultSink sink = new ResultSink(jobs.size(), resultsFile);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, numThreads));
+        try {
+            for (ArrayList<Job> toPlay : gameJobs.values()) {
+                // Register the sprites of the game, and warm it up, before the workers start.
+                VGDLFactory.GetInstance().init(); // This always first thing to do.
+                VGDLRegistry.GetInstance().init();
+                Game game = new VGDLParser().parseGame(toPlay.get(0).gameFile);
+                game.buildLevel(toPlay.get(0).levelFile, toPlay.get(0).seed);
+                ArcadeMachine.warmUp(game, CompetitionParameters.WARMUP_TIME);
+
+                ArrayList<Future<?>> futures = new ArrayList<>();
+                for (Job job : toPlay) {
+                    int position = positions.get(job);
+                    futures.add(pool.submit(() -> sink.add(position, playJob(job))));
+                }
+                for (Future<?> future : futures)
+                    future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            sink.close();
+            Logger.getInstance().active = loggerActive;
+        }
+
+        return sink.results;
+    }
+
+    /**
+     * Merges the results of a tournament by game and agents, in the order of the jobs.
+     * @param results results of the tournament.
+     * @return victories and scores of each player, for each game and agents (as "game agents").
+     */
+    public static LinkedHashMap<String, StatSummary[][]> summarize(Result[] results) {
+        LinkedHashMap<String, StatSummary[][]> summary = new LinkedHashMap<>();
+        for (Result result : results) {
+            if (result.error != null)
+                continue;
+
+            String key = result.job.gameFile + " " + result.job.agentNames;
+            StatSummary[][] stats = summary.get(key);
+            if (stats == null) {
+                stats = new StatSummary[2][result.scores.length];
+                for (int i = 0; i < result.scores.length; i++) {
+                    stats[0][i] = new StatSummary("victories");
+                    stats[1][i] = new StatSummary("scores");
+                }
+                summary.put(key, stats);
+            }
+            for (int i = 0; i < result.scores.length; i++) {
+                stats[0][i].add(result.victories[i]);
+                stats[1][i].add(result.scores[i]);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Prints the mean victories and scores of each game and agents, as ArcadeMachine.runGames.
+     * @param results results of the tournament.
+     */
+    public static void printSummary(Result[] results) {
+        for (Map.Entry<String, StatSummary[][]> entry : summarize(results).entrySet()) {
+            String vict = "", sc = "";
+            StatSummary[][] stats = entry.getValue();
+            for (int i = 0; i < stats[0].length; i++) {
+                vict += stats[0][i].mean();
+                sc += stats[1][i].mean();
+                if (i != stats[0].length - 1) {
+                    vict += ", ";
+                    sc += ", ";
+                }
+            }
+            System.out.println("Results in game " + entry.getKey() + ", " + vict + " , " + sc);
+        }
+    }
+
+    /**
+     * Plays a job on the calling thread, in a new game.
+     */
+    private static Result playJob(Job job) {
+        Result result = new Result(job);
+        try {
+            Game toPlay = new VGDLParser().parseGame(job.gameFile);
+            toPlay.buildLevel(job.levelFile, job.seed);
+
+            // Create the players.
+            String[] agentNames = job.agentNames.split(" ");
+            int no_players = agentNames.length;
+            int disqCount = 0;
+            Player[] players = no_players > 1 ? new AbstractMultiPlayer[no_players] : new AbstractPlayer[no_players];
+            for (int j = 0; j < no_players; j++) {
+                if (no_players > 1) {
+                    players[j] = ArcadeMachine.createMultiPlayer(agentNames[j], null,
+                            toPlay.getObservationMulti(j), job.seed, j, false);
+                } else {
+                    players[j] = ArcadeMachine.createPlayer(agentNames[j], null, toPlay.getObservation(),
+                            job.seed, false);
+                }
+                if (players[j] == null) {
+                    // Controller disqualified in the constructor.
+                    toPlay.getAvatars()[j].disqualify(true);
+                    disqCount++;
+                }
+            }
+
+            double[] score;
+            if ((no_players - disqCount) >= toPlay.no_players) {
+                score = toPlay.runGame(players, job.seed);
+            } else {
+                score = toPlay.handleResult();
+            }
+            if (disqCount == 0 && !ArcadeMachine.tearPlayerDown(toPlay, players, null, job.seed, false))
+                score = toPlay.handleResult();
+            if (VERBOSE) {
+                toPlay.printResult();
+                if (CompetitionParameters.TURBO)
+                    System.out.printf("Turbo: %.1f ticks/s%n", toPlay.getTicksPerSecond());
+            }
+
+            result.scores = score;
+            result.victories = new int[score.length];
+            for (int i = 0; i < score.length; i++)
+                result.victories[i] = toPlay.getWinner(i) == Types.WINNER.PLAYER_WINS ? 1 : 0;
+            result.gameTicks = toPlay.getGameTick();
+        } catch (Exception e) {
+            result.error = e.toString();
+        }
+        return result;
+    }
+
+    /**
+     * Keeps the results of the jobs, and writes them to the results file in the order
+     * of the jobs, as soon as the ones before have been written.
+     */
+    static class ResultSink {
+        Result[] results;
+        private int nextResult;
+        private BufferedWriter writer;
+        private boolean json;
+
+        ResultSink(int numJobs, String resultsFile) throws IOException {
+            results = new Result[numJobs];
+            if (resultsFile != null) {
+                writer = new BufferedWriter(new FileWriter(resultsFile));
+                json = resultsFile.endsWith(".jsonl");
+                if (!json) {
+                    writer.write("job,game,level,seed,agents,player,score,victory,ticks,error");
+                    writer.newLine();
+                }
+            }
+        }
+
+        /**
+         * Adds the result of a job.
+         * @param position position of the job in the list of jobs of the sink.
+         * @param result result of the job.
+         */
+        synchronized void add(int position, Result result) {
+            results[position] = result;
+            try {
+                while (nextResult < results.length && results[nextResult] != null) {
+                    if (writer != null)
+                        write(results[nextResult]);
+                    nextResult++;
+                }
+                if (writer != null)
+                    writer.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void close() throws IOException {
+            if (writer != null)
+                writer.close();
+        }
+
+        private void write(Result r) throws IOException {
+            if (json) {
+                writer.write(ResultLine.toJson(r));
+                writer.newLine();
+                return;
+            }
+
+            Job job = r.job;
+            String prefix = job.index + "," + job.gameFile + "," + job.levelFile + "," + job.seed + "," + job.agentNames + ",";
+            if (r.scores == null) {
+                writer.write(prefix + ",,,,\"" + r.error.replace('"', '\'').replace('\n', ' ') + "\"");
+                writer.newLine();
+                return;
+            }
+            for (int i = 0; i < r.scores.length; i++) {
+                writer.write(prefix + i + "," + r.scores[i] + "," + r.victories[i] + "," + r.gameTicks + ",");
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * A result as a line of JSON, in the results files that end in ".jsonl".
+     */
+    static class ResultLine {
+        private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+        int job;
+        String game;
+        String level;
+        int seed;
+        String agents;
+        double[] scores;
+        int[] victories;
+        int ticks;
+        String error;
+
+        static String toJson(Result r) {
+            ResultLine line = new ResultLine();
+            line.job = r.job.index;
+            line.game = r.job.gameFile;
+            line.level = r.job.levelFile;
+            line.seed = r.job.seed;
+            line.agents = r.job.agentNames;
+            line.scores = r.scores;
+            line.victories = r.victories;
+            line.ticks = r.gameTicks;
+            line.error = r.error;
+            return GSON.toJson(line);
+        }
+
+        /**
+         * @return the result in a line, or null if it is not a complete result (the end of
+         * a file whose writer was stopped, for example).
+         */
+        static Result fromJson(String json) {
+            ResultLine line;
+            try {
+                line = GSON.fromJson(json, ResultLine.class);
+            } catch (JsonSyntaxException e) {
+                return null;
+            }
+            if (line == null || line.game == null || (line.scores == null && line.error == null))
+                return null;
+
+            Result r = new Result(new Job(line.job, line.game, line.level, line.seed, line.agents));
+            r.scores = line.scores;
+            r.victories = line.victories;
+            r.gameTicks = line.ticks;
+            r.error = line.error;
+            return r;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String gamesFile = args.length > 0 ? args[0] : DEFAULTGAMES;
+        int numLevels = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int numSeeds = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int numThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        String resultsFile = args.length > 4 ? args[4] : "tournament.csv";
+        String[] agentNames = new String[]{DEFAULTAGENT};
+        if (args.length > 5) {
+            agentNames = new String[args.length - 5];
+            System.arraycopy(args, 5, agentNames, 0, agentNames.length);
+        }
+
+        CompetitionParameters.TURBO = true;
+        Result[] results = runTournament(createJobs(gamesFile, numLevels, numSeeds, agentNames), numThreads, resultsFile);
+
+        printSummary(results);
+    }
+}
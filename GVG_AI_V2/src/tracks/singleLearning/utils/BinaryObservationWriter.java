@@ -0,0 +1,340 @@
+package tracks.singleLearning.utils;
+
+import core.game.Observation;
+import core.game.SerializableStateObservation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Encodes state observations for the binary protocol of the learning track.
+ *
+ * The fields of the observation are written in a fixed order, as big endian primitives
+ * (enums as their ordinal, -1 for null). The observation arrays are delta encoded against
+ * the last ones sent in the same connection: each observation starts with a mask of the
+ * fields that changed from the observation in the same position of the previous array,
+ * followed by the new values of those fields only. The reader of the client mirrors this
+ * class, so both must be changed together.
+ */
+public class BinaryObservationWriter {
+
+    /**
+     * Fields of an observation that are written when they change.
+     */
+    public static final int CATEGORY = 1;
+    public static final int ITYPE = 2;
+    public static final int ID = 4;
+    public static final int POSITION = 8;
+    public static final int REFERENCE = 16;
+    public static final int SQDIST = 32;
+
+    /**
+     * References: none, the same as the last one written in the array, or new.
+     */
+    public static final int REF_NONE = 0;
+    public static final int REF_LAST = 1;
+    public static final int REF_NEW = 2;
+
+    /**
+     * Number of observation arrays, in the order they are written.
+     */
+    private static final int NUM_ARRAYS = 7;
+
+    /**
+     * Buffer the observation is encoded to.
+     */
+    private ByteArrayOutputStream buffer;
+    private DataOutputStream out;
+
+    /**
+     * Last arrays sent, and the arrays being written.
+     */
+    private ObservationTable[] previous;
+    private ObservationTable[] current;
+
+    /**
+     * Creates a writer with no previous observations.
+     */
+    public BinaryObservationWriter() {
+        buffer = new ByteArrayOutputStream(4096);
+        out = new DataOutputStream(buffer);
+        previous = new ObservationTable[NUM_ARRAYS];
+        current = new ObservationTable[NUM_ARRAYS];
+        for (int i = 0; i < NUM_ARRAYS; i++) {
+            previous[i] = new ObservationTable();
+            current[i] = new ObservationTable();
+        }
+    }
+
+    /**
+     * Encodes an observation. The encoding is kept until the next call.
+     * @param sso observation to encode.
+     * @throws IOException never, the observation is encoded in memory.
+     */
+    public void write(SerializableStateObservation sso) throws IOException {
+        buffer.reset();
+
+        out.writeByte(sso.phase.ordinal());
+        out.writeBoolean(sso.isValidation);
+        out.writeFloat(sso.gameScore);
+        out.writeInt(sso.gameTick);
+        writeEnum(sso.gameWinner);
+        out.writeBoolean(sso.isGameOver);
+        if (sso.availableActions == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(sso.availableActions.size());
+            for (int i = 0; i < sso.availableActions.size(); i++)
+                out.writeByte(sso.availableActions.get(i).ordinal());
+        }
+
+        // Image
+        writeEnum(sso.imageFormat);
+        out.writeInt(sso.imageWidth);
+        out.writeInt(sso.imageHeight);
+        if (sso.imageArray == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(sso.imageArray.length);
+            out.write(sso.imageArray);
+        }
+
+        // Avatar and world
+        writeVector(sso.worldDimension);
+        out.writeInt(sso.blockSize);
+        out.writeInt(sso.noOfPlayers);
+        out.writeFloat(sso.avatarSpeed);
+        writeVector(sso.avatarOrientation);
+        writeVector(sso.avatarPosition);
+        writeEnum(sso.avatarLastAction);
+        out.writeInt(sso.avatarType);
+        out.writeInt(sso.avatarHealthPoints);
+        out.writeInt(sso.avatarMaxHealthPoints);
+        out.writeInt(sso.avatarLimitHealthPoints);
+        out.writeBoolean(sso.isAvatarAlive);
+        if (sso.avatarResources == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(sso.avatarResources.size());
+            for (Map.Entry<Integer, Integer> entry : sso.avatarResources.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+
+        // Observation arrays
+        writeGrid(0, sso.observationGrid);
+        writeArray(1, sso.NPCPositions);
+        writeArray(2, sso.immovablePositions);
+        writeArray(3, sso.movablePositions);
+        writeArray(4, sso.resourcesPositions);
+        writeArray(5, sso.portalsPositions);
+        writeArray(6, sso.fromAvatarSpritesPositions);
+        out.flush();
+    }
+
+    /**
+     * @return number of bytes of the last observation encoded.
+     */
+    public int size() {
+        return buffer.size();
+    }
+
+    /**
+     * Writes the last observation encoded to a stream.
+     * @param stream stream to write to.
+     */
+    public void writeTo(OutputStream stream) throws IOException {
+        buffer.writeTo(stream);
+    }
+
+    private void writeEnum(Enum<?> value) throws IOException {
+        out.writeByte(value == null ? -1 : value.ordinal());
+    }
+
+    /**
+     * Writes a vector stored as a double[2], which is null if the state data is not sent.
+     */
+    private void writeVector(double[] vector) throws IOException {
+        out.writeBoolean(vector != null);
+        if (vector != null) {
+            out.writeDouble(vector[0]);
+            out.writeDouble(vector[1]);
+        }
+    }
+
+    /**
+     * Writes the observation grid: width, height and the cells column by column.
+     */
+    private void writeGrid(int index, Observation[][][] grid) throws IOException {
+        if (grid == null) {
+            out.writeInt(-1);
+            return;
+        }
+        int width = grid.length;
+        int height = width == 0 ? 0 : grid[0].length;
+        out.writeInt(width);
+        out.writeInt(height);
+
+        ObservationTable table = current[index];
+        table.clear();
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                table.addRow(grid[x][y]);
+        writeTable(index);
+    }
+
+    /**
+     * Writes an array of observations: number of rows and the rows.
+     */
+    private void writeArray(int index, Observation[][] array) throws IOException {
+        if (array == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(array.length);
+
+        ObservationTable table = current[index];
+        table.clear();
+        for (int i = 0; i < array.length; i++)
+            table.addRow(array[i]);
+        writeTable(index);
+    }
+
+    /**
+     * Writes the rows of current[index] against previous[index], and makes them the previous ones.
+     */
+    private void writeTable(int index) throws IOException {
+        ObservationTable table = current[index];
+        ObservationTable last = previous[index];
+
+        for (int row = 0; row < table.rows; row++)
+            out.writeInt(table.rowLength[row]);
+
+        boolean hasLastRef = false;
+        double lastRefX = 0, lastRefY = 0;
+        for (int row = 0; row < table.rows; row++) {
+            for (int col = 0; col < table.rowLength[row]; col++) {
+                int k = table.rowStart[row] + col;
+                int p = last.indexOf(row, col);
+
+                int mask;
+                if (p == -1) {
+                    mask = CATEGORY | ITYPE | ID | POSITION | REFERENCE | SQDIST;
+                } else {
+                    mask = 0;
+                    if (table.category[k] != last.category[p]) mask |= CATEGORY;
+                    if (table.itype[k] != last.itype[p]) mask |= ITYPE;
+                    if (table.obsID[k] != last.obsID[p]) mask |= ID;
+                    if (Double.compare(table.posX[k], last.posX[p]) != 0
+                            || Double.compare(table.posY[k], last.posY[p]) != 0) mask |= POSITION;
+                    if (table.hasRef[k] != last.hasRef[p]
+                            || Double.compare(table.refX[k], last.refX[p]) != 0
+                            || Double.compare(table.refY[k], last.refY[p]) != 0) mask |= REFERENCE;
+                    if (Double.compare(table.sqDist[k], last.sqDist[p]) != 0) mask |= SQDIST;
+                }
+
+                out.writeByte(mask);
+                if ((mask & CATEGORY) != 0) out.writeInt(table.category[k]);
+                if ((mask & ITYPE) != 0) out.writeInt(table.itype[k]);
+                if ((mask & ID) != 0) out.writeInt(table.obsID[k]);
+                if ((mask & POSITION) != 0) {
+                    out.writeDouble(table.posX[k]);
+                    out.writeDouble(table.posY[k]);
+                }
+                if ((mask & REFERENCE) != 0) {
+                    if (!table.hasRef[k]) {
+                        out.writeByte(REF_NONE);
+                    } else if (hasLastRef && Double.compare(table.refX[k], lastRefX) == 0
+                            && Double.compare(table.refY[k], lastRefY) == 0) {
+                        out.writeByte(REF_LAST);
+                    } else {
+                        out.writeByte(REF_NEW);
+                        out.writeDouble(table.refX[k]);
+                        out.writeDouble(table.refY[k]);
+                        hasLastRef = true;
+                        lastRefX = table.refX[k];
+                        lastRefY = table.refY[k];
+                    }
+                }
+                if ((mask & SQDIST) != 0) out.writeDouble(table.sqDist[k]);
+            }
+        }
+
+        previous[index] = table;
+        current[index] = last;
+    }
+
+    /**
+     * Values of the observations of an array, row by row. The observations of the
+     * game are updated in place, so their values are copied to compare them later.
+     */
+    private static class ObservationTable {
+        int rows;
+        int[] rowStart = new int[16];
+        int[] rowLength = new int[16];
+
+        int size;
+        int[] category = new int[64];
+        int[] itype = new int[64];
+        int[] obsID = new int[64];
+        double[] posX = new double[64];
+        double[] posY = new double[64];
+        boolean[] hasRef = new boolean[64];
+        double[] refX = new double[64];
+        double[] refY = new double[64];
+        double[] sqDist = new double[64];
+
+        void clear() {
+            rows = 0;
+            size = 0;
+        }
+
+        void addRow(Observation[] row) {
+            if (rows == rowStart.length) {
+                rowStart = Arrays.copyOf(rowStart, 2 * rows);
+                rowLength = Arrays.copyOf(rowLength, 2 * rows);
+            }
+            rowStart[rows] = size;
+            rowLength[rows] = row.length;
+            rows++;
+            for (Observation obs : row)
+                add(obs);
+        }
+
+        int indexOf(int row, int col) {
+            if (row >= rows || col >= rowLength[row])
+                return -1;
+            return rowStart[row] + col;
+        }
+
+        private void add(Observation obs) {
+            if (size == category.length) {
+                int capacity = 2 * size;
+                category = Arrays.copyOf(category, capacity);
+                itype = Arrays.copyOf(itype, capacity);
+                obsID = Arrays.copyOf(obsID, capacity);
+                posX = Arrays.copyOf(posX, capacity);
+                posY = Arrays.copyOf(posY, capacity);
+                hasRef = Arrays.copyOf(hasRef, capacity);
+                refX = Arrays.copyOf(refX, capacity);
+                refY = Arrays.copyOf(refY, capacity);
+                sqDist = Arrays.copyOf(sqDist, capacity);
+            }
+            category[size] = obs.category;
+            itype[size] = obs.itype;
+            obsID[size] = obs.obsID;
+            posX[size] = obs.position.x;
+            posY[size] = obs.position.y;
+            hasRef[size] = obs.reference != null;
+            refX[size] = obs.reference == null ? 0 : obs.reference.x;
+            refY[size] = obs.reference == null ? 0 : obs.reference.y;
+            sqDist[size] = obs.sqDist;
+            size++;
+        }
+    }
+}
@@ -5,7 +5,10 @@ import core.game.SerializableStateObservation;
 import core.game.StateObservation;
 import ontology.Types;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Random;
 
 /**
@@ -29,11 +32,46 @@ public abstract class Comm extends Thread {
      */
     protected String TOKEN_SEP = "#";
 
+    /**
+     * Option of the handshake to use the binary protocol: the server offers it in START
+     * and the client accepts it in START_DONE, after its sso type.
+     */
+    protected String BINARY_TOKEN = "BINARY";
+
+    /**
+     * Kinds of the frames of the binary protocol. Frames are [length, message ID, kind, payload]:
+     * two ints and a byte followed by length bytes, a UTF-8 message or an encoded observation.
+     */
+    public static final byte FRAME_TEXT = 0;
+    public static final byte FRAME_OBSERVATION = 1;
+    public static final byte FRAME_VECTOR = 2;
+
     /**
      * Message ID
      */
     protected long messageId;
 
+    /**
+     * True if the client accepted the binary protocol in its last message.
+     */
+    protected boolean clientBinary;
+
+    /**
+     * True once the binary protocol is in use. Messages to the client are then sent in
+     * frames; the replies of the client are still lines.
+     */
+    protected boolean binary;
+
+    /**
+     * Stream for the frames of the binary protocol, set by the subclasses.
+     */
+    protected DataOutputStream frameOutput;
+
+    /**
+     * Encoder of the observations for the binary protocol.
+     */
+    private BinaryObservationWriter binaryWriter;
+
     /**
      * Default constructor
      */
@@ -66,7 +104,7 @@ public abstract class Comm extends Thread {
 
             SerializableStateObservation sso = new SerializableStateObservation(so);
 
-            commSend(sso.serialize(null));
+            sendObservation(sso);
 
             String response = commRecv();
 
@@ -107,7 +145,7 @@ public abstract class Comm extends Thread {
             if(!CompetitionParameters.USE_SOCKETS)
                 commRecv();
 
-            commSend("START");
+            commSend(CompetitionParameters.LEARNING_BINARY_PROTOCOL ? "START" + TOKEN_SEP + BINARY_TOKEN : "START");
             String response;
 
             response = commRecv();
@@ -120,6 +158,10 @@ public abstract class Comm extends Thread {
                 System.out.println("START_FAILED");
                 return false;
             } else if (response.equalsIgnoreCase("START_DONE")) {
+                if (CompetitionParameters.LEARNING_BINARY_PROTOCOL && clientBinary) {
+                    binary = true;
+                    binaryWriter = new BinaryObservationWriter();
+                }
                 return true;
             }
 
@@ -152,6 +194,67 @@ public abstract class Comm extends Thread {
         return false;
     }
 
+    /**
+     * Sends an observation to the client, as JSON or in a frame of the binary protocol.
+     *
+     * @param sso observation to send.
+     */
+    public void sendObservation(SerializableStateObservation sso) throws IOException {
+        if (binary) {
+            binaryWriter.write(sso);
+            writeFrameHeader(binaryWriter.size(), FRAME_OBSERVATION);
+            binaryWriter.writeTo(frameOutput);
+            frameOutput.flush();
+            messageId++;
+        } else {
+            commSend(sso.serialize(null));
+        }
+    }
+
+    /**
+     * Sends a message to the client in a frame of the binary protocol.
+     *
+     * @param msg message to send.
+     */
+    protected void sendTextFrame(String msg) throws IOException {
+        byte[] payload = msg.getBytes(StandardCharsets.UTF_8);
+        writeFrameHeader(payload.length, FRAME_TEXT);
+        frameOutput.write(payload);
+        frameOutput.flush();
+        messageId++;
+    }
+
+    /**
+     * Sends a frame of the binary protocol.
+     *
+     * @param kind kind of the frame.
+     * @param payload payload of the frame.
+     */
+    protected void sendFrame(byte kind, ByteArrayOutputStream payload) throws IOException {
+        writeFrameHeader(payload.size(), kind);
+        payload.writeTo(frameOutput);
+        frameOutput.flush();
+        messageId++;
+    }
+
+    private void writeFrameHeader(int length, byte kind) throws IOException {
+        frameOutput.writeInt(length);
+        frameOutput.writeInt((int) messageId);
+        frameOutput.writeByte(kind);
+    }
+
+    /**
+     * Reads the options sent by the client after the message and its sso type.
+     *
+     * @param messageParts parts of the message received.
+     */
+    protected void readOptions(String[] messageParts) {
+        clientBinary = false;
+        for (int i = 3; i < messageParts.length; i++)
+            if (messageParts[i].trim().equals(BINARY_TOKEN))
+                clientBinary = true;
+    }
+
     /**
      * Creates the buffers for communication.
      */
@@ -171,6 +274,13 @@ public abstract class Comm extends Thread {
      */
     public abstract void commSend(String msg) throws IOException;
 
+    /**
+     * @return true if the binary protocol is in use.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
     public Types.LEARNING_SSO_TYPE getLastSsoType() {
         return this.lastSsoType;
     }
@@ -41,6 +41,7 @@ public class PipeComm extends Comm {
     public void initBuffers() {
         input = new BufferedReader(new InputStreamReader(client.getInputStream()));
         output = new BufferedWriter(new OutputStreamWriter(client.getOutputStream()));
+        frameOutput = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
     }
 
 
@@ -50,6 +51,10 @@ public class PipeComm extends Comm {
      * @param msg message to send.
      */
     public void commSend(String msg) throws IOException {
+        if (binary) {
+            sendTextFrame(msg);
+            return;
+        }
         String message = messageId + TOKEN_SEP + msg + lineSep;
         output.write(message);
         output.flush();
@@ -73,6 +78,7 @@ public class PipeComm extends Comm {
 
             int receivedID = Integer.parseInt(messageParts[0]);
             String msg = messageParts[1];
+            readOptions(messageParts);
 
             if(receivedID == (messageId-1)) {
                 return msg.trim();
@@ -45,9 +45,13 @@ public class SocketComm extends Comm {
             }
 
 
+            //Messages are small and answered at once: send them without waiting for the ACK of the previous one.
+            socket.setTcpNoDelay(true);
+
             //Initialize input and output through socket.
             in = new Scanner(socket.getInputStream());
             out = new PrintStream(socket.getOutputStream());
+            frameOutput = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
 
         } catch(java.net.BindException e)
         {
@@ -86,6 +90,10 @@ public class SocketComm extends Comm {
      * @param msg message to send.
      */
     public void commSend(String msg) throws IOException {
+        if (binary) {
+            sendTextFrame(msg);
+            return;
+        }
         String message = messageId + TOKEN_SEP + msg + lineSep;
         out.format(message);
         out.flush();
@@ -155,7 +163,7 @@ public class SocketComm extends Comm {
     public String commRecv() {
         float timeout = 0;
         String response = null;
-        while (timeout < THRESHOLD && response == null)
+        while (timeout < THRESHOLD && response == null && !end)
         {
             response = processCommRecv();
         }
@@ -178,6 +186,7 @@ public class SocketComm extends Comm {
                 }
                 int receivedID = Integer.parseInt(messageParts[0]);
                 String msg = messageParts[1];
+                readOptions(messageParts);
 
                 if (messageParts.length >= 3) {
                     String ssoType = messageParts[2];
@@ -211,6 +220,8 @@ public class SocketComm extends Comm {
                 return null;
             }
         } else {
+            //The client closed the connection.
+            end = true;
             return null;
         }
     }
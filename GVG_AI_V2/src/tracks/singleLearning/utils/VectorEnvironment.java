@@ -0,0 +1,253 @@
+package tracks.singleLearning.utils;
+
+import core.competition.CompetitionParameters;
+import core.game.Game;
+import core.game.StateObservation;
+import core.vgdl.VGDLFactory;
+import core.vgdl.VGDLParser;
+import core.vgdl.VGDLRegistry;
+import ontology.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * K independent copies of a game level, stepped together on a pool of threads.
+ *
+ * Each environment has its own Game, parsed on the calling thread because parsing uses
+ * the global VGDL registries, and is played through the forward model of its initial
+ * state. An environment is reset when its game ends (done) or is cut off at
+ * CompetitionParameters.MAX_TIMESTEPS (truncated), so step() always leaves K games in
+ * progress. The last state of the episode that ended is kept until the next step.
+ * The random generator of each episode is seeded from the seed of the environment, so
+ * the same actions give the same results.
+ */
+public class VectorEnvironment {
+
+    /**
+     * Initial state and current state of each environment.
+     */
+    private StateObservation[] initialStates;
+    private StateObservation[] states;
+
+    /**
+     * Last state of the episode that ended in the last step, for each environment. The
+     * objects are swapped with the current states instead of copied.
+     */
+    private StateObservation[] finalStates;
+
+    /**
+     * Seeds of the episodes of each environment.
+     */
+    private Random[] seeds;
+
+    /**
+     * Result of the last step of each environment: score gained, whether the game of
+     * the episode ended or was cut off (and the environment was reset), and the winner
+     * of the game that ended.
+     */
+    private double[] rewards;
+    private boolean[] dones;
+    private boolean[] truncateds;
+    private Types.WINNER[] winners;
+
+    /**
+     * Actions of the step in progress.
+     */
+    private Types.ACTIONS[] actions;
+
+    /**
+     * Workers, and number of environments stepped by each one.
+     */
+    private ExecutorService pool;
+    private int numThreads;
+
+    /**
+     * Creates the environments and resets them.
+     * @param gameFile game description file.
+     * @param levelFile level file.
+     * @param numEnvs number of environments.
+     * @param seed seed of the first environment. Environment i uses seed + i.
+     * @param numThreads number of threads that step the environments.
+     */
+    public VectorEnvironment(String gameFile, String levelFile, int numEnvs, int seed, int numThreads) {
+        VGDLFactory.GetInstance().init();
+        VGDLRegistry.GetInstance().init();
+
+        initialStates = new StateObservation[numEnvs];
+        states = new StateObservation[numEnvs];
+        finalStates = new StateObservation[numEnvs];
+        seeds = new Random[numEnvs];
+        for (int i = 0; i < numEnvs; i++) {
+            Game game = new VGDLParser().parseGame(gameFile);
+            game.buildLevel(levelFile, seed + i);
+            initialStates[i] = game.getObservation();
+            states[i] = initialStates[i].copy();
+            finalStates[i] = initialStates[i].copy();
+            seeds[i] = new Random(seed + i);
+        }
+
+        rewards = new double[numEnvs];
+        dones = new boolean[numEnvs];
+        truncateds = new boolean[numEnvs];
+        winners = new Types.WINNER[numEnvs];
+        actions = new Types.ACTIONS[numEnvs];
+
+        this.numThreads = Math.max(1, Math.min(numThreads, numEnvs));
+        pool = Executors.newFixedThreadPool(this.numThreads);
+        reset();
+    }
+
+    /**
+     * @return number of environments.
+     */
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * @return actions available in the game.
+     */
+    public ArrayList<Types.ACTIONS> getAvailableActions() {
+        return initialStates[0].getAvailableActions();
+    }
+
+    /**
+     * Starts a new episode in all the environments.
+     */
+    public void reset() {
+        for (int i = 0; i < states.length; i++) {
+            resetEnvironment(i);
+            rewards[i] = 0;
+            dones[i] = false;
+            truncateds[i] = false;
+            winners[i] = null;
+        }
+    }
+
+    /**
+     * Advances all the environments one step, in parallel. The environments whose
+     * episode ends are reset.
+     * @param actions action of each environment. Missing (or null) actions are ACTION_NIL.
+     */
+    public void step(Types.ACTIONS[] actions) {
+        for (int i = 0; i < this.actions.length; i++)
+            this.actions[i] = (i < actions.length && actions[i] != null) ? actions[i] : Types.ACTIONS.ACTION_NIL;
+        forEachEnvironment(this::stepEnvironment);
+    }
+
+    /**
+     * Runs a task for each environment on the threads of this object, and waits for all of them.
+     * Tasks for different environments run in parallel, so they must not share mutable state.
+     * @param task task, receives the index of the environment.
+     */
+    public void forEachEnvironment(IntConsumer task) {
+        int numEnvs = states.length;
+        Future<?>[] futures = new Future<?>[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int first = t * numEnvs / numThreads;
+            final int last = (t + 1) * numEnvs / numThreads;
+            futures[t] = pool.submit(() -> {
+                for (int i = first; i < last; i++)
+                    task.accept(i);
+            });
+        }
+
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @param i index of the environment.
+     * @return current state of the environment. It is a new episode if isDone(i) or isTruncated(i).
+     */
+    public StateObservation getState(int i) {
+        return states[i];
+    }
+
+    /**
+     * @param i index of the environment.
+     * @return score gained in the last step.
+     */
+    public double getReward(int i) {
+        return rewards[i];
+    }
+
+    /**
+     * @param i index of the environment.
+     * @return true if the game of the episode ended in the last step.
+     */
+    public boolean isDone(int i) {
+        return dones[i];
+    }
+
+    /**
+     * @param i index of the environment.
+     * @return true if the episode was cut off at MAX_TIMESTEPS in the last step, with
+     * its game still in progress.
+     */
+    public boolean isTruncated(int i) {
+        return truncateds[i];
+    }
+
+    /**
+     * @param i index of the environment.
+     * @return last state of the episode that ended (or was cut off) in the last step,
+     * null if none did. It is valid until the next step.
+     */
+    public StateObservation getFinalState(int i) {
+        return dones[i] || truncateds[i] ? finalStates[i] : null;
+    }
+
+    /**
+     * @param i index of the environment.
+     * @return winner of the game that ended in the last step, null if none ended or
+     * the episode was cut off.
+     */
+    public Types.WINNER getWinner(int i) {
+        return winners[i];
+    }
+
+    /**
+     * Stops the threads of this object.
+     */
+    public void close() {
+        pool.shutdown();
+    }
+
+    private void stepEnvironment(int i) {
+        StateObservation state = states[i];
+        double score = state.getGameScore();
+        state.advance(actions[i]);
+        rewards[i] = state.getGameScore() - score;
+
+        // The forward model also ends the game at MAX_TIMESTEPS, as a loss: that is a cut-off
+        // unless the game was won in that step.
+        boolean won = state.getGameWinner() == Types.WINNER.PLAYER_WINS;
+        truncateds[i] = !won && state.getGameTick() >= CompetitionParameters.MAX_TIMESTEPS;
+        dones[i] = state.isGameOver() && !truncateds[i];
+        winners[i] = dones[i] ? (won ? Types.WINNER.PLAYER_WINS : Types.WINNER.PLAYER_LOSES) : null;
+        if (dones[i] || truncateds[i]) {
+            states[i] = finalStates[i];
+            finalStates[i] = state;
+            resetEnvironment(i);
+        }
+    }
+
+    private void resetEnvironment(int i) {
+        initialStates[i].copyInto(states[i]);
+        states[i].setNewSeed(seeds[i].nextInt());
+    }
+}
@@ -0,0 +1,209 @@
+package tracks.singleLearning.utils;
+
+import core.competition.CompetitionParameters;
+import core.game.SerializableStateObservation;
+import core.game.StateObservation;
+import core.logging.Logger;
+import ontology.Types;
+import tools.com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Server of a VectorEnvironment for external learners: K copies of a game level are
+ * stepped together, with one request and one reply per step for all of them.
+ *
+ * The learner connects to the socket and starts as any learning client (START / START_DONE,
+ * accepting the binary protocol or not). Then it sends lines with the ID of the last message
+ * received, as the other clients:
+ *   - id#RESET: starts a new episode in all the environments.
+ *   - id#ACTION_X,ACTION_Y,...: K actions, one per environment.
+ *   - id#FINISH: closes the server.
+ * The server replies to RESET and to the actions with the state of the K environments. With
+ * the binary protocol, it is a FRAME_VECTOR frame: K, and for each environment the reward (float),
+ * done (byte), truncated (byte), winner of the game that ended (byte, -1 if none), and the length
+ * and bytes of its observation (see BinaryObservationWriter), followed by the length and bytes of
+ * the final observation if done or truncated. Otherwise, it is a JSON object with the arrays
+ * rewards, dones, truncateds, winners, observations and finalObservations.
+ *
+ * Environments are reset when their game ends (done) or is cut off at MAX_TIMESTEPS (truncated,
+ * with no winner): the observation sent is then the first one of the new episode (phase INIT),
+ * and the final observation is the last one of the episode that ended (phase END).
+ *
+ * Usage: VectorServer [game] [level] [environments] [port] [threads] [seed]
+ */
+public class VectorServer {
+
+    public static final String DEFAULTGAME = "examples/contphysics/lander.txt";
+    public static final String DEFAULTLEVEL = "examples/contphysics/lander_lvl0.txt";
+
+    /**
+     * Environments and connection with the learner.
+     */
+    private VectorEnvironment environment;
+    private Comm comm;
+
+    /**
+     * Encoders of the observations of each environment, and the frame of the replies.
+     */
+    private BinaryObservationWriter[] writers;
+    private BinaryObservationWriter[] finalWriters;
+    private SerializableStateObservation[] observations;
+    private SerializableStateObservation[] finalObservations;
+    private ByteArrayOutputStream frame;
+    private DataOutputStream frameData;
+
+    /**
+     * Creates the server.
+     * @param environment environments to serve.
+     * @param comm connection with the learner, not started yet.
+     */
+    public VectorServer(VectorEnvironment environment, Comm comm) {
+        this.environment = environment;
+        this.comm = comm;
+        writers = new BinaryObservationWriter[environment.size()];
+        finalWriters = new BinaryObservationWriter[environment.size()];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new BinaryObservationWriter();
+            finalWriters[i] = new BinaryObservationWriter();
+        }
+        observations = new SerializableStateObservation[environment.size()];
+        finalObservations = new SerializableStateObservation[environment.size()];
+        frame = new ByteArrayOutputStream();
+        frameData = new DataOutputStream(frame);
+    }
+
+    /**
+     * Serves requests until the learner sends FINISH or closes the connection.
+     * @return false if the communication could not be started.
+     */
+    public boolean serve() throws IOException {
+        if (!comm.startComm())
+            return false;
+
+        String msg;
+        while ((msg = comm.commRecv()) != null && !msg.equals("FINISH")) {
+            if (msg.equals("RESET")) {
+                environment.reset();
+            } else {
+                environment.step(parseActions(msg));
+            }
+            sendStep();
+        }
+        return true;
+    }
+
+    /**
+     * Reads K comma separated actions. Missing or unknown actions are ACTION_NIL.
+     */
+    private Types.ACTIONS[] parseActions(String msg) {
+        String[] names = msg.split(",");
+        Types.ACTIONS[] actions = new Types.ACTIONS[environment.size()];
+        for (int i = 0; i < actions.length; i++)
+            actions[i] = i < names.length ? Types.ACTIONS.fromString(names[i].trim()) : Types.ACTIONS.ACTION_NIL;
+        return actions;
+    }
+
+    /**
+     * Sends the state of all the environments. Observations are created (and encoded) in parallel.
+     */
+    private void sendStep() throws IOException {
+        final boolean binary = comm.isBinary();
+        environment.forEachEnvironment(i -> {
+            StateObservation state = environment.getState(i);
+            StateObservation finalState = environment.getFinalState(i);
+            boolean first = finalState != null || state.getGameTick() == 0;
+            state.currentGameState = first ? Types.GAMESTATES.INIT_STATE : Types.GAMESTATES.ACT_STATE;
+            observations[i] = new SerializableStateObservation(state);
+            finalObservations[i] = null;
+            if (finalState != null) {
+                finalState.currentGameState = Types.GAMESTATES.END_STATE;
+                finalObservations[i] = new SerializableStateObservation(finalState);
+            }
+            if (binary) {
+                try {
+                    writers[i].write(observations[i]);
+                    if (finalObservations[i] != null)
+                        finalWriters[i].write(finalObservations[i]);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+
+        int numEnvs = environment.size();
+        if (binary) {
+            frame.reset();
+            frameData.writeInt(numEnvs);
+            for (int i = 0; i < numEnvs; i++) {
+                Types.WINNER winner = environment.getWinner(i);
+                frameData.writeFloat((float) environment.getReward(i));
+                frameData.writeBoolean(environment.isDone(i));
+                frameData.writeBoolean(environment.isTruncated(i));
+                frameData.writeByte(winner == null ? -1 : winner.ordinal());
+                frameData.writeInt(writers[i].size());
+                writers[i].writeTo(frameData);
+                if (finalObservations[i] != null) {
+                    frameData.writeInt(finalWriters[i].size());
+                    finalWriters[i].writeTo(frameData);
+                }
+            }
+            frameData.flush();
+            comm.sendFrame(Comm.FRAME_VECTOR, frame);
+        } else {
+            VectorStep step = new VectorStep(numEnvs);
+            for (int i = 0; i < numEnvs; i++) {
+                step.rewards[i] = (float) environment.getReward(i);
+                step.dones[i] = environment.isDone(i);
+                step.truncateds[i] = environment.isTruncated(i);
+                step.winners[i] = environment.getWinner(i);
+                step.observations[i] = observations[i];
+                step.finalObservations[i] = finalObservations[i];
+            }
+            comm.commSend(new Gson().toJson(step));
+        }
+    }
+
+    /**
+     * Reply to a request, in JSON.
+     */
+    private static class VectorStep {
+        float[] rewards;
+        boolean[] dones;
+        boolean[] truncateds;
+        Types.WINNER[] winners;
+        SerializableStateObservation[] observations;
+        SerializableStateObservation[] finalObservations;
+
+        VectorStep(int numEnvs) {
+            rewards = new float[numEnvs];
+            dones = new boolean[numEnvs];
+            truncateds = new boolean[numEnvs];
+            winners = new Types.WINNER[numEnvs];
+            observations = new SerializableStateObservation[numEnvs];
+            finalObservations = new SerializableStateObservation[numEnvs];
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String gameFile = args.length > 0 ? args[0] : DEFAULTGAME;
+        String levelFile = args.length > 1 ? args[1] : DEFAULTLEVEL;
+        int numEnvs = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        String port = args.length > 3 ? args[3] : CompetitionParameters.SOCKET_PORT + "";
+        int numThreads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        int seed = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+
+        Logger.getInstance().active = false;
+        CompetitionParameters.IS_LEARNING = true;
+        VectorEnvironment environment = new VectorEnvironment(gameFile, levelFile, numEnvs, seed, numThreads);
+        System.out.println("[VECTOR] " + numEnvs + " environments of " + levelFile + " waiting at port " + port);
+
+        try {
+            new VectorServer(environment, new SocketComm(port)).serve();
+        } finally {
+            environment.close();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package tracks.singlePlayer;
 
+import java.io.IOException;
 import java.util.Random;
 
+import core.competition.CompetitionParameters;
 import core.logging.Logger;
 import tools.Utils;
 import tracks.ArcadeMachine;
+import tracks.TournamentMachine;
 
 /**
  * Created with IntelliJ IDEA. User: Diego Date: 04/10/13 Time: 16:29 This is a
@@ -93,5 +96,22 @@ public class Test {
 //			ArcadeMachine.runGames(game, levels, M, sampleRHEAController, saveActions? actionFiles:null);
 //		}
 
+		//6. This plays one game, in its first L levels, with M seeds, on a pool of threads. Results to a CSV file.
+//		int L = 5, M = 1000;
+//		String[][] levels = new String[1][L];
+//		for (int j = 0; j < L; ++j)
+//			levels[0][j] = game.replace(gameName, gameName + "_lvl" + j);
+//		int[] seeds = new int[M];
+//		for (int k = 0; k < M; ++k)
+//			seeds[k] = k;
+//		CompetitionParameters.TURBO = true;
+//		try {
+//			TournamentMachine.runTournament(TournamentMachine.createJobs(new String[]{game}, levels, seeds,
+//					new String[]{sampleRandomController}), Runtime.getRuntime().availableProcessors(), "tournament.csv");
+//		} catch (IOException e) {
+//			e.printStackTrace();
+//		}
+		// Agents that are not thread safe need a JVM each: ShardedMachine.runTournament takes the same arguments.
+
     }
 }
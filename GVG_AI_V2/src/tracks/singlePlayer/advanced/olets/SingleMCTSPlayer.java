@@ -1,6 +1,7 @@
 package tracks.singlePlayer.advanced.olets;
 
 import core.game.StateObservation;
+import core.game.StateObservationPool;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
 
@@ -131,7 +132,7 @@ public class SingleMCTSPlayer {
 
         int remainingLimit = 5;
         while (remaining > 2 * avgTimeTaken && remaining > remainingLimit) {
-            tempState = rootObservation.copy();
+            tempState = StateObservationPool.copy(rootObservation);
             ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
 
             // treepolicy: navigate from the root node until either we add a new node or we reach a final state
@@ -142,6 +143,7 @@ public class SingleMCTSPlayer {
 
             // backing up the run in the tree
             selected.backUp(selected, delta);   //TODO : I should probably make the backup method cleaner
+            StateObservationPool.release(tempState);
 
             numIters++;
             acumTimeTaken += (elapsedTimerIteration.elapsedMillis());
@@ -3,6 +3,7 @@ package tracks.singlePlayer.advanced.sampleMCTS;
 import java.util.Random;
 
 import core.game.StateObservation;
+import core.game.StateObservationPool;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
 import tools.Utils;
@@ -59,12 +60,13 @@ public class SingleTreeNode
         while(remaining > 2*avgTimeTaken && remaining > remainingLimit){
         //while(numIters < Agent.MCTS_ITERATIONS){
 
-            StateObservation state = rootState.copy();
+            StateObservation state = StateObservationPool.copy(rootState);
 
             ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
             SingleTreeNode selected = treePolicy(state);
             double delta = selected.rollOut(state);
             backUp(selected, delta);
+            StateObservationPool.release(state);
 
             numIters++;
             acumTimeTaken += (elapsedTimerIteration.elapsedMillis()) ;
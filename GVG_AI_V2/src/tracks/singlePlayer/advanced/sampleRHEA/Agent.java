@@ -1,6 +1,7 @@
 package tracks.singlePlayer.advanced.sampleRHEA;
 
 import core.game.StateObservation;
+import core.game.StateObservationPool;
 import core.player.AbstractPlayer;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
@@ -152,7 +153,7 @@ public class Agent extends AbstractPlayer {
 
         ElapsedCpuTimer elapsedTimerIterationEval = new ElapsedCpuTimer();
 
-        StateObservation st = state.copy();
+        StateObservation st = StateObservationPool.copy(state);
         int i;
         double acum = 0, avg;
         for (i = 0; i < SIMULATION_DEPTH; i++) {
@@ -170,6 +171,7 @@ public class Agent extends AbstractPlayer {
         }
 
         individual.value = heuristic.evaluateState(st);
+        StateObservationPool.release(st);
 
         numEvals++;
         acumTimeTakenEval += (elapsedTimerIterationEval.elapsedMillis());